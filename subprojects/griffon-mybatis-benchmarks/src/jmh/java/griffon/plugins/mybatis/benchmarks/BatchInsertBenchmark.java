@@ -0,0 +1,108 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import griffon.plugins.mybatis.MybatisHandler;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisFactory;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisHandler;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisStorage;
+import org.codehaus.griffon.runtime.mybatis.SqlSessionSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createDataSource;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createEnvironment;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createSqlSessionFactory;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.populate;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.shutdown;
+
+/**
+ * Inserts {@code rows} records per invocation, within a single transaction, with either the simple or the
+ * batch executor. Divide the reported time by {@code rows} to obtain the cost per inserted record.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchInsertBenchmark {
+    @Param({"100", "1000"})
+    private int rows;
+
+    private SqlSessionFactory sqlSessionFactory;
+    private MybatisHandler mybatisHandler;
+    private int id;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sqlSessionFactory = createSqlSessionFactory(createEnvironment("inserts", createDataSource("inserts")));
+        BenchmarkSupport.SingleMybatisFactory mybatisFactory = new BenchmarkSupport.SingleMybatisFactory(DefaultMybatisFactory.KEY_DEFAULT, sqlSessionFactory,
+            Collections.singletonMap(SqlSessionSettings.KEY_TRANSACTIONAL, true));
+        mybatisHandler = new DefaultMybatisHandler(mybatisFactory, new DefaultMybatisStorage());
+    }
+
+    @Setup(Level.Iteration)
+    public void clear() {
+        populate(sqlSessionFactory, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shutdown(sqlSessionFactory);
+    }
+
+    @Benchmark
+    public Integer simpleInserts() {
+        return mybatisHandler.withSqlSession((sessionFactoryName, session) -> {
+            PeopleMapper mapper = session.getMapper(PeopleMapper.class);
+            int count = 0;
+            for (int i = 0; i < rows; i++) {
+                int next = id++;
+                count += mapper.insert(next, "name" + next, "lastname" + next);
+            }
+            return count;
+        });
+    }
+
+    @Benchmark
+    public List<BatchResult> batchInserts() {
+        return mybatisHandler.withBatchSqlSession((sessionFactoryName, session) -> {
+            PeopleMapper mapper = session.getMapper(PeopleMapper.class);
+            for (int i = 0; i < rows; i++) {
+                int next = id++;
+                mapper.insert(next, "name" + next, "lastname" + next);
+            }
+            return null;
+        });
+    }
+}
@@ -0,0 +1,524 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Identical mappers that only differ in their namespace, used to scale the amount of parsing performed
+ * when a session factory is created.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+final class BenchmarkMappers {
+    static final List<Class<?>> MAPPERS = Collections.unmodifiableList(Arrays.asList(
+        Mapper01.class,
+        Mapper02.class,
+        Mapper03.class,
+        Mapper04.class,
+        Mapper05.class,
+        Mapper06.class,
+        Mapper07.class,
+        Mapper08.class,
+        Mapper09.class,
+        Mapper10.class,
+        Mapper11.class,
+        Mapper12.class,
+        Mapper13.class,
+        Mapper14.class,
+        Mapper15.class,
+        Mapper16.class,
+        Mapper17.class,
+        Mapper18.class,
+        Mapper19.class,
+        Mapper20.class,
+        Mapper21.class,
+        Mapper22.class,
+        Mapper23.class,
+        Mapper24.class,
+        Mapper25.class,
+        Mapper26.class,
+        Mapper27.class,
+        Mapper28.class,
+        Mapper29.class,
+        Mapper30.class,
+        Mapper31.class,
+        Mapper32.class
+    ));
+
+    private BenchmarkMappers() {
+        // prevent instantiation
+    }
+
+    interface Mapper01 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper02 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper03 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper04 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper05 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper06 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper07 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper08 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper09 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper10 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper11 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper12 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper13 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper14 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper15 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper16 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper17 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper18 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper19 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper20 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper21 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper22 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper23 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper24 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper25 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper26 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper27 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper28 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper29 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper30 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper31 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+
+    interface Mapper32 {
+        @Select("SELECT name FROM people WHERE id = #{id}")
+        String findNameById(@Param("id") int id);
+
+        @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+        int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+        @Update("UPDATE people SET name = #{name} WHERE id = #{id}")
+        int rename(@Param("id") int id, @Param("name") String name);
+
+        @Delete("DELETE FROM people WHERE id = #{id}")
+        int delete(@Param("id") int id);
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import griffon.annotations.core.Nonnull;
+import griffon.plugins.mybatis.MybatisFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.codehaus.griffon.runtime.mybatis.RecordingSqlSessionFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shared fixtures for all benchmarks. Every benchmark runs against its own in-memory H2 database behind a
+ * pooled datasource, thus connection setup does not dominate the measurements.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+final class BenchmarkSupport {
+    private static final String SCHEMA = "CREATE TABLE IF NOT EXISTS people (id INTEGER NOT NULL PRIMARY KEY, name VARCHAR(30) NOT NULL, lastname VARCHAR(30) NOT NULL)";
+
+    private BenchmarkSupport() {
+        // prevent instantiation
+    }
+
+    @Nonnull
+    static PooledDataSource createDataSource(@Nonnull String databaseName) {
+        PooledDataSource dataSource = new PooledDataSource("org.h2.Driver", "jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1", "sa", "");
+        dataSource.setPoolMaximumActiveConnections(16);
+        dataSource.setPoolMaximumIdleConnections(16);
+        return dataSource;
+    }
+
+    @Nonnull
+    static Environment createEnvironment(@Nonnull String name, @Nonnull DataSource dataSource) {
+        return new Environment(name, new JdbcTransactionFactory(), dataSource);
+    }
+
+    @Nonnull
+    static SqlSessionFactory createSqlSessionFactory(@Nonnull Environment environment) {
+        Configuration configuration = new Configuration(environment);
+        configuration.addMapper(PeopleMapper.class);
+        SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            session.getConnection().createStatement().execute(SCHEMA);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not create schema for " + environment.getId(), e);
+        }
+        return sqlSessionFactory;
+    }
+
+    static void populate(@Nonnull SqlSessionFactory sqlSessionFactory, int rows) {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            PeopleMapper mapper = session.getMapper(PeopleMapper.class);
+            mapper.deleteAll();
+            for (int id = 0; id < rows; id++) {
+                mapper.insert(id, "name" + id, "lastname" + id);
+            }
+            session.commit();
+        }
+    }
+
+    static void shutdown(@Nonnull SqlSessionFactory sqlSessionFactory) {
+        DataSource dataSource = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+        if (dataSource instanceof PooledDataSource) {
+            ((PooledDataSource) dataSource).forceCloseAll();
+        }
+    }
+
+    /**
+     * A {@code MybatisFactory} backed by a single, eagerly created session factory. It stands in for
+     * {@code DefaultMybatisFactory}, which requires a running application to be instantiated.
+     */
+    static final class SingleMybatisFactory implements MybatisFactory {
+        private final String sessionFactoryName;
+        private final SqlSessionFactory sqlSessionFactory;
+        private final Map<String, Object> config;
+
+        SingleMybatisFactory(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory, @Nonnull Map<String, Object> config) {
+            this.sessionFactoryName = requireNonNull(sessionFactoryName, "Argument 'sessionFactoryName' must not be null");
+            this.sqlSessionFactory = new RecordingSqlSessionFactory(requireNonNull(sqlSessionFactory, "Argument 'sqlSessionFactory' must not be null"));
+            this.config = Collections.unmodifiableMap(new LinkedHashMap<>(requireNonNull(config, "Argument 'config' must not be null")));
+        }
+
+        @Nonnull
+        @Override
+        public Set<String> getSessionFactoryNames() {
+            return Collections.singleton(sessionFactoryName);
+        }
+
+        @Nonnull
+        @Override
+        public Map<String, Object> getConfigurationFor(@Nonnull String sessionFactoryName) {
+            return config;
+        }
+
+        @Nonnull
+        @Override
+        public SqlSessionFactory create(@Nonnull String name) {
+            if (!sessionFactoryName.equals(name)) {
+                throw new IllegalArgumentException("Unknown session factory '" + name + "'");
+            }
+            return sqlSessionFactory;
+        }
+
+        @Override
+        public void destroy(@Nonnull String name, @Nonnull SqlSessionFactory instance) {
+            shutdown(instance);
+        }
+    }
+}
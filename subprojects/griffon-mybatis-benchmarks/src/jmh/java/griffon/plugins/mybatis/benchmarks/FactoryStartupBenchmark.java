@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.codehaus.griffon.runtime.mybatis.LazyConfiguration;
+import org.codehaus.griffon.runtime.mybatis.SharedConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createEnvironment;
+
+/**
+ * Measures how long it takes to build a session factory for a growing number of mappers, following the
+ * same strategies {@code DefaultMybatisFactory} picks from: every mapper parsed eagerly, parsed on first use
+ * ({@code lazy_mappers}), or copied from a template parsed once ({@code share_configuration}). The
+ * datasource is never connected to, thus only configuration work is measured.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FactoryStartupBenchmark {
+    @Param({"1", "8", "32"})
+    private int mapperCount;
+
+    @Param({"eager", "lazy", "shared"})
+    private String strategy;
+
+    private Environment environment;
+    private List<Class<?>> mapperClasses;
+    private Configuration template;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        environment = createEnvironment("startup", new UnpooledDataSource("org.h2.Driver", "jdbc:h2:mem:startup", "sa", ""));
+        mapperClasses = BenchmarkMappers.MAPPERS.subList(0, mapperCount);
+        // DefaultMybatisFactory caches the template, only the first factory pays for parsing it
+        template = eagerConfiguration();
+    }
+
+    @Benchmark
+    public SqlSessionFactory create() {
+        Configuration configuration;
+        switch (strategy) {
+            case "lazy":
+                configuration = new LazyConfiguration(environment, mapperClasses);
+                break;
+            case "shared":
+                SharedConfiguration sharedConfiguration = new SharedConfiguration(environment, template);
+                sharedConfiguration.importTemplate();
+                configuration = sharedConfiguration;
+                break;
+            default:
+                configuration = eagerConfiguration();
+        }
+        return new SqlSessionFactoryBuilder().build(configuration);
+    }
+
+    private Configuration eagerConfiguration() {
+        Configuration configuration = new Configuration(environment);
+        for (Class<?> mapperClass : mapperClasses) {
+            configuration.addMapper(mapperClass);
+        }
+        return configuration;
+    }
+}
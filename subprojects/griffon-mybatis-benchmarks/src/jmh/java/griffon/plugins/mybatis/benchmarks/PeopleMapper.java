@@ -0,0 +1,41 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface PeopleMapper {
+    @Select("SELECT COUNT(*) FROM people")
+    int count();
+
+    @Select("SELECT name FROM people WHERE id = #{id}")
+    String findNameById(@Param("id") int id);
+
+    @Insert("INSERT INTO people (id, name, lastname) VALUES (#{id}, #{name}, #{lastname})")
+    int insert(@Param("id") int id, @Param("name") String name, @Param("lastname") String lastname);
+
+    @Delete("DELETE FROM people")
+    int deleteAll();
+}
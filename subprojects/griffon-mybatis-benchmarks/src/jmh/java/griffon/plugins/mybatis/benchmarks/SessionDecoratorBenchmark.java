@@ -0,0 +1,110 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.RecordingSqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.SqlSessionDecorator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createDataSource;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createEnvironment;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createSqlSessionFactory;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.populate;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.shutdown;
+
+/**
+ * Measures the cost of wrapping sessions. {@code *OpenClose} benchmarks never touch a connection, thus they
+ * isolate the bookkeeping done by {@code SqlSessionDecorator} and {@code LinkedSqlSession}; {@code *Select}
+ * benchmarks show that cost relative to a trivial query.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionDecoratorBenchmark {
+    private SqlSessionFactory sqlSessionFactory;
+    private RecordingSqlSessionFactory recordingSqlSessionFactory;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sqlSessionFactory = createSqlSessionFactory(createEnvironment("decorators", createDataSource("decorators")));
+        populate(sqlSessionFactory, 10);
+        recordingSqlSessionFactory = new RecordingSqlSessionFactory(sqlSessionFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shutdown(sqlSessionFactory);
+    }
+
+    @Benchmark
+    public SqlSession plainOpenClose() {
+        SqlSession session = sqlSessionFactory.openSession(true);
+        session.close();
+        return session;
+    }
+
+    @Benchmark
+    public SqlSession decoratedOpenClose() {
+        SqlSession session = new SqlSessionDecorator(sqlSessionFactory.openSession(true));
+        session.close();
+        return session;
+    }
+
+    @Benchmark
+    public SqlSession linkedOpenClose() {
+        SqlSession session = recordingSqlSessionFactory.openSession(true);
+        session.close();
+        return session;
+    }
+
+    @Benchmark
+    public int plainSelect() {
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            return session.getMapper(PeopleMapper.class).count();
+        }
+    }
+
+    @Benchmark
+    public int decoratedSelect() {
+        try (SqlSession session = new SqlSessionDecorator(sqlSessionFactory.openSession(true))) {
+            return session.getMapper(PeopleMapper.class).count();
+        }
+    }
+
+    @Benchmark
+    public int linkedSelect() {
+        try (SqlSession session = recordingSqlSessionFactory.openSession(true)) {
+            return session.getMapper(PeopleMapper.class).count();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.benchmarks;
+
+import griffon.plugins.mybatis.MybatisHandler;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisFactory;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisHandler;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createDataSource;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createEnvironment;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.createSqlSessionFactory;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.populate;
+import static griffon.plugins.mybatis.benchmarks.BenchmarkSupport.shutdown;
+
+/**
+ * Compares a single lookup issued through {@code DefaultMybatisHandler} with the same lookup issued on a
+ * plain MyBatis {@code SqlSessionFactory}. The difference is the per call overhead of the plugin.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WithSqlSessionBenchmark {
+    private static final int ROWS = 100;
+
+    private SqlSessionFactory sqlSessionFactory;
+    private MybatisHandler mybatisHandler;
+    private int id;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sqlSessionFactory = createSqlSessionFactory(createEnvironment("withSqlSession", createDataSource("withSqlSession")));
+        populate(sqlSessionFactory, ROWS);
+        BenchmarkSupport.SingleMybatisFactory mybatisFactory = new BenchmarkSupport.SingleMybatisFactory(DefaultMybatisFactory.KEY_DEFAULT, sqlSessionFactory, Collections.emptyMap());
+        mybatisHandler = new DefaultMybatisHandler(mybatisFactory, new DefaultMybatisStorage());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        shutdown(sqlSessionFactory);
+    }
+
+    @Benchmark
+    public String rawMybatis() {
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            String name = session.getMapper(PeopleMapper.class).findNameById(nextId());
+            session.commit();
+            return name;
+        }
+    }
+
+    @Benchmark
+    public String withSqlSession() {
+        return mybatisHandler.withSqlSession((sessionFactoryName, session) -> session.getMapper(PeopleMapper.class).findNameById(nextId()));
+    }
+
+    @Benchmark
+    public String withMapper() {
+        return mybatisHandler.withMapper(PeopleMapper.class, (sessionFactoryName, mapper) -> mapper.findNameById(nextId()));
+    }
+
+    private int nextId() {
+        id = (id + 1) % ROWS;
+        return id;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+import griffon.annotations.core.Nonnull;
+
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Outcome of a bulk insert.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class BulkInsertResult {
+    private final long rowCount;
+    private final long statementCount;
+    private final long duration;
+    private final boolean multiRow;
+
+    /**
+     * @param rowCount       number of rows written
+     * @param statementCount number of statements (or JDBC batches) executed
+     * @param duration       time taken, in nanoseconds
+     * @param multiRow       whether rows were written with multi-row statements or JDBC batches
+     */
+    public BulkInsertResult(long rowCount, long statementCount, long duration, boolean multiRow) {
+        this.rowCount = rowCount;
+        this.statementCount = statementCount;
+        this.duration = duration;
+        this.multiRow = multiRow;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getStatementCount() {
+        return statementCount;
+    }
+
+    public long getDuration(@Nonnull TimeUnit unit) {
+        return requireNonNull(unit, "Argument 'unit' must not be null").convert(duration, TimeUnit.NANOSECONDS);
+    }
+
+    public double getRowsPerSecond() {
+        return duration > 0 ? rowCount * 1e9d / duration : 0d;
+    }
+
+    /**
+     * @return {@code true} if rows were written with multi-row statements, {@code false} if JDBC batches were used.
+     */
+    public boolean isMultiRow() {
+        return multiRow;
+    }
+
+    @Override
+    public String toString() {
+        return rowCount + " rows in " + statementCount + (multiRow ? " statements" : " batches") +
+            String.format(" (%.0f rows/s)", getRowsPerSecond());
+    }
+}
@@ -19,9 +19,29 @@ package griffon.plugins.mybatis;
 
 import griffon.annotations.core.Nonnull;
 import griffon.annotations.core.Nullable;
+import griffon.core.mvc.MVCGroup;
+import griffon.core.storage.ObjectFactory;
 import griffon.plugins.mybatis.exceptions.RuntimeMybatisException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
 
 /**
+ * Methods added after the first four have default implementations written in terms of
+ * {@link #withSqlSession(String, MybatisCallback)}, so that existing implementations keep compiling. These defaults
+ * provide the semantics of each method without its optimizations: sessions are neither shared nor batched, memos
+ * are not kept and streams are read eagerly.
+ *
  * @author Andres Almiray
  */
 public interface MybatisHandler {
@@ -34,8 +54,144 @@ public interface MybatisHandler {
     <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback)
         throws RuntimeMybatisException;
 
+    @Nullable
+    default <R> R withSqlSession(@Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        return withSqlSession(ObjectFactory.KEY_DEFAULT, propagation, callback);
+    }
+
+    @Nullable
+    default <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        requireNonNull(propagation, "Argument 'propagation' must not be null");
+        return withSqlSession(sessionFactoryName, callback);
+    }
+
+    @Nullable
+    default <R> R withSqlSession(@Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        return withSqlSession(ObjectFactory.KEY_DEFAULT, executorType, callback);
+    }
+
+    @Nullable
+    default <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        requireNonNull(executorType, "Argument 'executorType' must not be null");
+        return withSqlSession(sessionFactoryName, callback);
+    }
+
+    @Nullable
+    default <M, R> R withMapper(@Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback)
+        throws RuntimeMybatisException {
+        return withMapper(ObjectFactory.KEY_DEFAULT, mapperType, callback);
+    }
+
+    @Nullable
+    default <M, R> R withMapper(@Nonnull String sessionFactoryName, @Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback)
+        throws RuntimeMybatisException {
+        requireNonNull(mapperType, "Argument 'mapperType' must not be null");
+        requireNonNull(callback, "Argument 'callback' must not be null");
+        return withSqlSession(sessionFactoryName, (name, session) -> callback.handle(name, session.getMapper(mapperType)));
+    }
+
+    @Nonnull
+    default <R> List<BatchResult> withBatchSqlSession(@Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        return withBatchSqlSession(ObjectFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    default <R> List<BatchResult> withBatchSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException {
+        requireNonNull(callback, "Argument 'callback' must not be null");
+        return requireNonNull(withSqlSession(sessionFactoryName, ExecutorType.BATCH, (name, session) -> {
+            callback.handle(name, session);
+            return session.flushStatements();
+        }));
+    }
+
+    @Nonnull
+    default <T> BulkInsertResult bulkInsert(@Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize)
+        throws RuntimeMybatisException {
+        return bulkInsert(ObjectFactory.KEY_DEFAULT, statementId, rows, chunkSize);
+    }
+
+    @Nonnull
+    default <T> BulkInsertResult bulkInsert(@Nonnull String sessionFactoryName, @Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize)
+        throws RuntimeMybatisException {
+        requireNonNull(statementId, "Argument 'statementId' must not be null");
+        requireNonNull(rows, "Argument 'rows' must not be null");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Argument 'chunkSize' must be greater than zero");
+        }
+        return requireNonNull(withSqlSession(sessionFactoryName, ExecutorType.BATCH, (name, session) -> {
+            long start = System.nanoTime();
+            long rowCount = 0;
+            long statementCount = 0;
+            for (Iterator<T> it = rows.iterator(); it.hasNext(); ) {
+                session.insert(statementId, it.next());
+                if (++rowCount % chunkSize == 0 || !it.hasNext()) {
+                    // sessions that do not batch have executed every row on its own already
+                    int batches = session.flushStatements().size();
+                    statementCount += batches > 0 ? batches : (rowCount - 1) % chunkSize + 1;
+                }
+            }
+            return new BulkInsertResult(rowCount, statementCount, System.nanoTime() - start, false);
+        }));
+    }
+
+    @Nullable
+    default <R> R withMemo(@Nonnull Supplier<R> callback) {
+        return requireNonNull(callback, "Argument 'callback' must not be null").get();
+    }
+
+    @Nullable
+    default <R> R withMemo(@Nonnull MVCGroup group, @Nonnull Supplier<R> callback) {
+        requireNonNull(group, "Argument 'group' must not be null");
+        return withMemo(callback);
+    }
+
+    @Nonnull
+    default <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull MybatisCallback<R> callback) {
+        return withSqlSessionAsync(ObjectFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    default <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) {
+        return CompletableFuture.supplyAsync(() -> withSqlSession(sessionFactoryName, callback));
+    }
+
+    @Nonnull
+    default <T> Stream<T> stream(@Nonnull MybatisCallback<Cursor<T>> callback)
+        throws RuntimeMybatisException {
+        return stream(ObjectFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    default <T> Stream<T> stream(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<Cursor<T>> callback)
+        throws RuntimeMybatisException {
+        return stream(sessionFactoryName, 0, callback);
+    }
+
+    @Nonnull
+    default <T> Stream<T> stream(@Nonnull String sessionFactoryName, int fetchSize, @Nonnull MybatisCallback<Cursor<T>> callback)
+        throws RuntimeMybatisException {
+        requireNonNull(callback, "Argument 'callback' must not be null");
+        // the session is closed on return, thus rows are read before that
+        List<T> rows = withSqlSession(sessionFactoryName, (name, session) -> {
+            try (Cursor<T> cursor = requireNonNull(callback.handle(name, session), "Callback must return a Cursor")) {
+                List<T> list = new ArrayList<>();
+                cursor.forEach(list::add);
+                return list;
+            } catch (IOException e) {
+                throw new RuntimeMybatisException(name, e);
+            }
+        });
+        return requireNonNull(rows).stream();
+    }
+
     void closeSqlSession();
 
     void closeSqlSession(@Nonnull String sessionFactoryName);
     // end::methods[]
-}
\ No newline at end of file
+}
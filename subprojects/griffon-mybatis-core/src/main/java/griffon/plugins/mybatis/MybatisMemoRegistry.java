@@ -0,0 +1,98 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Keeps query results memoized per scope, such as an MVC group. Results are keyed by statement id plus parameters
+ * and are discarded whenever a statement writes to the same namespace.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface MybatisMemoRegistry {
+    /**
+     * @return {@code false} if memoization has been disabled by configuration.
+     */
+    boolean isEnabled();
+
+    /**
+     * Creates the memo of a scope, unless it exists already.
+     *
+     * @param scope the name of the scope
+     */
+    void create(@Nonnull String scope);
+
+    /**
+     * Executes the callback with the memo of the given scope bound to the current thread. The callback runs without
+     * a memo if the scope has not been created or has been destroyed already.
+     *
+     * @param scope    the name of the scope
+     * @param callback the code to be executed
+     * @return the result of the callback
+     */
+    @Nullable
+    <R> R withScope(@Nonnull String scope, @Nonnull Supplier<R> callback);
+
+    /**
+     * Returns the result memoized in the scope bound to the current thread, executing the query when there is none.
+     * The query is always executed when no scope is bound. Lists are memoized and returned as copies, thus callers
+     * may modify them.
+     *
+     * @param namespace the namespace of the statement
+     * @param key       a key made of the statement id and its parameters
+     * @param query     computes the result on a miss
+     * @return the memoized or freshly computed result
+     */
+    @Nullable
+    <T> T memoize(@Nonnull String namespace, @Nonnull Object key, @Nonnull Query<T> query) throws SQLException;
+
+    /**
+     * Discards the results of a namespace in every scope.
+     *
+     * @param namespace the namespace that has been written to
+     */
+    void invalidate(@Nonnull String namespace);
+
+    /**
+     * Discards the memo of a scope.
+     *
+     * @param scope the name of the scope
+     */
+    void destroy(@Nonnull String scope);
+
+    @Nonnull
+    Set<String> getScopes();
+
+    /**
+     * @param scope the name of the scope
+     * @return the number of results memoized in the scope, {@code 0} if it does not exist.
+     */
+    int size(@Nonnull String scope);
+
+    interface Query<T> {
+        @Nullable
+        T execute() throws SQLException;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+import griffon.annotations.core.Nonnull;
+
+import java.util.List;
+
+/**
+ * Decides which shard owns a given shard key.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface MybatisShardResolver {
+    /**
+     * @param shardKey   the key to be resolved, such as a tenant id
+     * @param shardNames the names of the session factories configured as shards, never empty
+     * @return one of {@code shardNames}
+     */
+    @Nonnull
+    String resolve(@Nonnull Object shardKey, @Nonnull List<String> shardNames);
+}
@@ -17,11 +17,47 @@
  */
 package griffon.plugins.mybatis;
 
+import griffon.annotations.core.Nonnull;
 import griffon.core.storage.ObjectStorage;
 import org.apache.ibatis.session.SqlSessionFactory;
 
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
 /**
  * @author Andres Almiray
  */
 public interface MybatisStorage extends ObjectStorage<SqlSessionFactory> {
+    /**
+     * Returns the instance stored under the given name, creating it with {@code factory} if there is none.
+     * The factory is invoked at most once per name, even when called concurrently.
+     *
+     * @param sessionFactoryName the name of the session factory
+     * @param factory            creates the instance when missing
+     *
+     * @return the existing or newly created instance
+     *
+     * @since 3.0.0
+     */
+    @Nonnull
+    default SqlSessionFactory computeIfAbsent(@Nonnull String sessionFactoryName, @Nonnull Function<String, SqlSessionFactory> factory) {
+        requireNonNull(sessionFactoryName, "Argument 'sessionFactoryName' must not be null");
+        requireNonNull(factory, "Argument 'factory' must not be null");
+
+        SqlSessionFactory sqlSessionFactory = get(sessionFactoryName);
+        if (sqlSessionFactory != null) {
+            return sqlSessionFactory;
+        }
+
+        // implementations that can lock per name should override this method
+        synchronized (this) {
+            sqlSessionFactory = get(sessionFactoryName);
+            if (sqlSessionFactory == null) {
+                sqlSessionFactory = requireNonNull(factory.apply(sessionFactoryName), "Argument 'factory' must not return null");
+                set(sessionFactoryName, sqlSessionFactory);
+            }
+            return sqlSessionFactory;
+        }
+    }
 }
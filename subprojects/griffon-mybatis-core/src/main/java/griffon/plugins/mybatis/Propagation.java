@@ -0,0 +1,35 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+/**
+ * Decides whether a {@code withSqlSession} call nested in another one on the same session factory shares its session.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public enum Propagation {
+    /**
+     * Joins the session of the enclosing call, if any. A failure marks the whole transaction for rollback.
+     */
+    REQUIRED,
+    /**
+     * Always opens a session of its own, committed or rolled back independently of the enclosing call.
+     */
+    REQUIRES_NEW
+}
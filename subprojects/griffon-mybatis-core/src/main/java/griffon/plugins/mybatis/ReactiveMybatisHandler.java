@@ -0,0 +1,42 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.cursor.Cursor;
+import org.reactivestreams.Publisher;
+
+/**
+ * Exposes query results as Reactive Streams publishers. Each subscription executes the query anew, pulling rows from
+ * the returned {@code Cursor} only as they are requested.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface ReactiveMybatisHandler {
+    // tag::methods[]
+    @Nonnull
+    <T> Publisher<T> publish(@Nonnull MybatisCallback<Cursor<T>> callback);
+
+    @Nonnull
+    <T> Publisher<T> publish(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<Cursor<T>> callback);
+
+    @Nonnull
+    <T> Publisher<T> publish(@Nonnull String sessionFactoryName, int fetchSize, @Nonnull MybatisCallback<Cursor<T>> callback);
+    // end::methods[]
+}
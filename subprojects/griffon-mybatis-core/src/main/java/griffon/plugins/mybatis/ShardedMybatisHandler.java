@@ -0,0 +1,54 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.mybatis.exceptions.RuntimeMybatisException;
+
+import java.util.List;
+import java.util.stream.Collector;
+
+/**
+ * Runs callbacks against the session factories listed as {@code shards}, either on the shard that owns a given key
+ * or on all of them in parallel.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface ShardedMybatisHandler {
+    // tag::methods[]
+    @Nonnull
+    List<String> getShardNames();
+
+    @Nonnull
+    String resolveShard(@Nonnull Object shardKey);
+
+    @Nullable
+    <R> R withShard(@Nonnull Object shardKey, @Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException;
+
+    @Nonnull
+    <R> List<R> withEachShard(@Nonnull MybatisCallback<R> callback)
+        throws RuntimeMybatisException;
+
+    @Nonnull
+    <R, A, T> T withEachShard(@Nonnull MybatisCallback<R> callback, @Nonnull Collector<? super R, A, T> collector)
+        throws RuntimeMybatisException;
+    // end::methods[]
+}
@@ -34,11 +34,17 @@ public class MybatisConnectEndEvent extends Event {
     private final String name;
     private final Map<String, Object> config;
     private final SqlSessionFactory sqlSessionFactory;
+    private final long duration;
 
     public MybatisConnectEndEvent(@Nonnull String name, @Nonnull Map<String, Object> config, @Nonnull SqlSessionFactory sqlSessionFactory) {
+        this(name, config, sqlSessionFactory, -1L);
+    }
+
+    public MybatisConnectEndEvent(@Nonnull String name, @Nonnull Map<String, Object> config, @Nonnull SqlSessionFactory sqlSessionFactory, long duration) {
         this.name = requireNonBlank(name, "Argument 'name' must not be blank");
         this.config = requireNonNull(config, "Argument 'config' must not be null");
         this.sqlSessionFactory = requireNonNull(sqlSessionFactory, "Argument 'sqlSessionFactory' must not be null");
+        this.duration = duration;
     }
 
     @Nonnull
@@ -56,8 +62,22 @@ public class MybatisConnectEndEvent extends Event {
         return sqlSessionFactory;
     }
 
+    /**
+     * Time spent creating the session factory, including its datasource, mappers and bootstraps.
+     *
+     * @return the elapsed time in milliseconds, or {@code -1} if unknown.
+     */
+    public long getDuration() {
+        return duration;
+    }
+
     @Nonnull
     public static MybatisConnectEndEvent of(@Nonnull String name, @Nonnull Map<String, Object> config, @Nonnull SqlSessionFactory sqlSessionFactory) {
         return new MybatisConnectEndEvent(name, config, sqlSessionFactory);
     }
+
+    @Nonnull
+    public static MybatisConnectEndEvent of(@Nonnull String name, @Nonnull Map<String, Object> config, @Nonnull SqlSessionFactory sqlSessionFactory, long duration) {
+        return new MybatisConnectEndEvent(name, config, sqlSessionFactory, duration);
+    }
 }
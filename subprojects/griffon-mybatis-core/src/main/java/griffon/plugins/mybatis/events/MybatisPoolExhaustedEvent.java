@@ -0,0 +1,89 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.events;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.event.Event;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+
+/**
+ * Triggered when a session factory borrows every connection of its pool, and whenever it gives up waiting for one.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class MybatisPoolExhaustedEvent extends Event {
+    private final String name;
+    private final int activeConnections;
+    private final int maximumPoolSize;
+    private final int pendingAcquisitions;
+    private final long waitTime;
+    private final boolean timedOut;
+
+    public MybatisPoolExhaustedEvent(@Nonnull String name, int activeConnections, int maximumPoolSize, int pendingAcquisitions, long waitTime, boolean timedOut) {
+        this.name = requireNonBlank(name, "Argument 'name' must not be blank");
+        this.activeConnections = activeConnections;
+        this.maximumPoolSize = maximumPoolSize;
+        this.pendingAcquisitions = pendingAcquisitions;
+        this.waitTime = waitTime;
+        this.timedOut = timedOut;
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    /**
+     * @return the size of the pool, {@code 0} if unknown.
+     */
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    /**
+     * @return threads waiting for a connection when the event was triggered.
+     */
+    public int getPendingAcquisitions() {
+        return pendingAcquisitions;
+    }
+
+    /**
+     * @return how long the last acquisition waited for a connection, in milliseconds.
+     */
+    public long getWaitTime() {
+        return waitTime;
+    }
+
+    /**
+     * @return {@code true} if the last acquisition gave up waiting for a connection.
+     */
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    @Nonnull
+    public static MybatisPoolExhaustedEvent of(@Nonnull String name, int activeConnections, int maximumPoolSize, int pendingAcquisitions, long waitTime, boolean timedOut) {
+        return new MybatisPoolExhaustedEvent(name, activeConnections, maximumPoolSize, pendingAcquisitions, waitTime, timedOut);
+    }
+}
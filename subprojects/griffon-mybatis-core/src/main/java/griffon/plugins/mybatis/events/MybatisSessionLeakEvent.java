@@ -0,0 +1,76 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package griffon.plugins.mybatis.events;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.event.Event;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Triggered when a session has been held open longer than the configured {@code session_leak_threshold}.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class MybatisSessionLeakEvent extends Event {
+    private final String name;
+    private final long age;
+    private final boolean closed;
+    private final StackTraceElement[] openedAt;
+
+    public MybatisSessionLeakEvent(@Nonnull String name, long age, boolean closed, @Nonnull StackTraceElement[] openedAt) {
+        this.name = requireNonBlank(name, "Argument 'name' must not be blank");
+        this.age = age;
+        this.closed = closed;
+        this.openedAt = requireNonNull(openedAt, "Argument 'openedAt' must not be null");
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return how long the session has been held open, in milliseconds.
+     */
+    public long getAge() {
+        return age;
+    }
+
+    /**
+     * @return {@code true} if the leak was detected when the session was finally closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the stack of the code that opened the session. Empty unless {@code session_stack_trace} is enabled.
+     */
+    @Nonnull
+    public StackTraceElement[] getOpenedAt() {
+        return openedAt;
+    }
+
+    @Nonnull
+    public static MybatisSessionLeakEvent of(@Nonnull String name, long age, boolean closed, @Nonnull StackTraceElement[] openedAt) {
+        return new MybatisSessionLeakEvent(name, age, closed, openedAt);
+    }
+}
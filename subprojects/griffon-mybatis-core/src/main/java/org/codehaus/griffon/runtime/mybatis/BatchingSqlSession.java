@@ -0,0 +1,277 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flushes pending batch statements whenever the configured statement count or
+ * (estimated) parameter byte size is reached.
+ * <p>
+ * The batch executor flushes pending statements on its own before a select or a commit, discarding their results.
+ * Such calls flush through this session first so that every result is collected and the counters start over.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class BatchingSqlSession extends SqlSessionDecorator {
+    private static final long DEFAULT_OBJECT_SIZE = 16L;
+
+    private final int maxStatements;
+    private final long maxBytes;
+    private final List<BatchResult> batchResults = new ArrayList<>();
+    private int pendingStatements;
+    private long pendingBytes;
+
+    public BatchingSqlSession(@Nonnull SqlSession delegate, int maxStatements, long maxBytes) {
+        super(delegate);
+        this.maxStatements = maxStatements;
+        this.maxBytes = maxBytes;
+    }
+
+    @Nonnull
+    public List<BatchResult> getBatchResults() {
+        return Collections.unmodifiableList(batchResults);
+    }
+
+    @Override
+    public <T> T selectOne(String statement) {
+        flushPendingStatements();
+        return super.selectOne(statement);
+    }
+
+    @Override
+    public <T> T selectOne(String statement, Object parameter) {
+        flushPendingStatements();
+        return super.selectOne(statement, parameter);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement) {
+        flushPendingStatements();
+        return super.selectList(statement);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter) {
+        flushPendingStatements();
+        return super.selectList(statement, parameter);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
+        flushPendingStatements();
+        return super.selectList(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, String mapKey) {
+        flushPendingStatements();
+        return super.selectMap(statement, mapKey);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey) {
+        flushPendingStatements();
+        return super.selectMap(statement, parameter, mapKey);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds) {
+        flushPendingStatements();
+        return super.selectMap(statement, parameter, mapKey, rowBounds);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement) {
+        flushPendingStatements();
+        return super.selectCursor(statement);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+        flushPendingStatements();
+        return super.selectCursor(statement, parameter);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+        flushPendingStatements();
+        return super.selectCursor(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public void select(String statement, Object parameter, ResultHandler handler) {
+        flushPendingStatements();
+        super.select(statement, parameter, handler);
+    }
+
+    @Override
+    public void select(String statement, ResultHandler handler) {
+        flushPendingStatements();
+        super.select(statement, handler);
+    }
+
+    @Override
+    public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
+        flushPendingStatements();
+        super.select(statement, parameter, rowBounds, handler);
+    }
+
+    @Override
+    public int insert(String statement) {
+        int result = super.insert(statement);
+        track(null);
+        return result;
+    }
+
+    @Override
+    public int insert(String statement, Object parameter) {
+        int result = super.insert(statement, parameter);
+        track(parameter);
+        return result;
+    }
+
+    @Override
+    public int update(String statement) {
+        int result = super.update(statement);
+        track(null);
+        return result;
+    }
+
+    @Override
+    public int update(String statement, Object parameter) {
+        int result = super.update(statement, parameter);
+        track(parameter);
+        return result;
+    }
+
+    @Override
+    public int delete(String statement) {
+        int result = super.delete(statement);
+        track(null);
+        return result;
+    }
+
+    @Override
+    public int delete(String statement, Object parameter) {
+        int result = super.delete(statement, parameter);
+        track(parameter);
+        return result;
+    }
+
+    @Override
+    public void commit() {
+        flushPendingStatements();
+        super.commit();
+    }
+
+    @Override
+    public void commit(boolean force) {
+        flushPendingStatements();
+        super.commit(force);
+    }
+
+    @Override
+    public void rollback() {
+        super.rollback();
+        resetCounters();
+    }
+
+    @Override
+    public void rollback(boolean force) {
+        super.rollback(force);
+        resetCounters();
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() {
+        List<BatchResult> results = super.flushStatements();
+        batchResults.addAll(results);
+        resetCounters();
+        return results;
+    }
+
+    private void flushPendingStatements() {
+        if (pendingStatements > 0) {
+            flushStatements();
+        }
+    }
+
+    private void resetCounters() {
+        pendingStatements = 0;
+        pendingBytes = 0;
+    }
+
+    private void track(Object parameter) {
+        pendingStatements++;
+        if (maxBytes > 0) {
+            pendingBytes += estimateSize(parameter, true);
+        }
+
+        if ((maxStatements > 0 && pendingStatements >= maxStatements) ||
+            (maxBytes > 0 && pendingBytes >= maxBytes)) {
+            flushStatements();
+        }
+    }
+
+    private long estimateSize(Object value, boolean deep) {
+        if (value == null) {
+            return 0L;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length() * 2L;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof Number || value instanceof Boolean || value instanceof Character ||
+            value instanceof Date || value instanceof Enum) {
+            return 8L;
+        } else if (!deep) {
+            return DEFAULT_OBJECT_SIZE;
+        }
+
+        long size = 0L;
+        if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                size += estimateSize(element, false);
+            }
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                size += estimateSize(element, false);
+            }
+        } else {
+            MetaObject metaObject = getConfiguration().newMetaObject(value);
+            for (String name : metaObject.getGetterNames()) {
+                size += estimateSize(metaObject.getValue(name), false);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.mybatis.BulkInsertResult;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.codehaus.griffon.runtime.mybatis.cache.MemoInterceptor;
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCacheInterceptor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Writes rows with a single-row insert (or merge) statement, expanding its {@code VALUES} tuple so that each statement
+ * sent to the database carries many rows. Statements that can't be expanded, as well as databases that don't accept
+ * multi-row {@code VALUES}, are written with JDBC batches instead. Rows are read one chunk at a time, yet by default
+ * all of them are committed at once, so that a failure leaves none of them behind; {@link CommitMode#CHUNK} commits
+ * every statement or batch as soon as it has been executed instead. Generated keys are not read back.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class BulkInserter {
+    public enum CommitMode {
+        ALL, CHUNK
+    }
+
+    private static final Pattern VALUES = Pattern.compile("\\bVALUES\\s*\\(", Pattern.CASE_INSENSITIVE);
+    private static final int DEFAULT_MAX_PARAMETERS = 32767;
+
+    private final SqlSession session;
+    private final MappedStatement ms;
+    private final Configuration configuration;
+    private final int chunkSize;
+    private final CommitMode commitMode;
+
+    private boolean multiRowSupported = true;
+    private int maxParameters = DEFAULT_MAX_PARAMETERS;
+    private int maxRows = Integer.MAX_VALUE;
+
+    // SQL of the rows being written and how it expands
+    private String rowSql;
+    private String prefix;
+    private String tuple;
+    private String suffix;
+    private int rowsPerStatement;
+    private String expandedSql;
+    private int expandedRows;
+
+    private final List<BoundSql> pending = new ArrayList<>();
+    private PreparedStatement statement;
+    private String statementSql;
+    private long rowCount;
+    private long statementCount;
+    private long batchCount;
+    private long uncommittedRows;
+
+    public BulkInserter(@Nonnull SqlSession session, @Nonnull MappedStatement ms, int chunkSize) {
+        this(session, ms, chunkSize, CommitMode.ALL);
+    }
+
+    public BulkInserter(@Nonnull SqlSession session, @Nonnull MappedStatement ms, int chunkSize, @Nonnull CommitMode commitMode) {
+        this.commitMode = requireNonNull(commitMode, "Argument 'commitMode' must not be null");
+        this.session = requireNonNull(session, "Argument 'session' must not be null");
+        this.ms = requireNonNull(ms, "Argument 'ms' must not be null");
+        this.configuration = ms.getConfiguration();
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Argument 'chunkSize' must be greater than zero");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    @Nonnull
+    public BulkInsertResult insert(@Nonnull Iterable<?> rows) throws SQLException {
+        requireNonNull(rows, "Argument 'rows' must not be null");
+        long start = System.nanoTime();
+        Connection connection = session.getConnection();
+        resolveDialect(connection.getMetaData().getDatabaseProductName());
+        try {
+            for (Object row : rows) {
+                BoundSql boundSql = ms.getBoundSql(row);
+                // dynamic SQL may differ from one row to the next
+                if (!boundSql.getSql().equals(rowSql)) {
+                    flush(connection);
+                    parse(boundSql);
+                }
+                pending.add(boundSql);
+                if (pending.size() >= rowsPerStatement) {
+                    flush(connection);
+                }
+            }
+            flush(connection);
+            commit();
+        } finally {
+            closeStatement();
+        }
+        return new BulkInsertResult(rowCount, statementCount, System.nanoTime() - start, batchCount == 0);
+    }
+
+    private void resolveDialect(@Nullable String productName) {
+        String product = productName != null ? productName.toLowerCase(Locale.ENGLISH) : "";
+        if (product.contains("oracle")) {
+            multiRowSupported = false;
+        } else if (product.contains("sql server")) {
+            maxParameters = 2000;
+            maxRows = 1000;
+        } else if (product.contains("sqlite")) {
+            maxParameters = 999;
+        }
+    }
+
+    private void parse(@Nonnull BoundSql boundSql) {
+        rowSql = boundSql.getSql();
+        tuple = null;
+        expandedSql = null;
+        expandedRows = 0;
+        rowsPerStatement = chunkSize;
+
+        if (!multiRowSupported) {
+            return;
+        }
+        Matcher matcher = VALUES.matcher(rowSql);
+        if (!matcher.find()) {
+            return;
+        }
+        int open = matcher.end() - 1;
+        int close = findClosingParenthesis(rowSql, open);
+        if (close < 0) {
+            return;
+        }
+        String head = rowSql.substring(0, open);
+        String tail = rowSql.substring(close + 1);
+        // every row must bind its parameters within the tuple being repeated
+        if (countPlaceholders(head) > 0 || countPlaceholders(tail) > 0) {
+            return;
+        }
+        prefix = head;
+        tuple = rowSql.substring(open, close + 1);
+        suffix = tail;
+
+        int parametersPerRow = countParameters(boundSql);
+        if (parametersPerRow > 0) {
+            rowsPerStatement = Math.max(1, Math.min(rowsPerStatement, maxParameters / parametersPerRow));
+        }
+        rowsPerStatement = Math.min(rowsPerStatement, maxRows);
+    }
+
+    private void flush(@Nonnull Connection connection) throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        if (tuple != null) {
+            PreparedStatement ps = prepare(connection, expand(pending.size()));
+            int index = 0;
+            for (BoundSql boundSql : pending) {
+                index = bind(ps, index, boundSql);
+            }
+            ps.executeUpdate();
+        } else {
+            PreparedStatement ps = prepare(connection, rowSql);
+            for (BoundSql boundSql : pending) {
+                bind(ps, 0, boundSql);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            batchCount++;
+        }
+        statementCount++;
+        rowCount += pending.size();
+        uncommittedRows += pending.size();
+        pending.clear();
+        if (commitMode == CommitMode.CHUNK) {
+            commit();
+        }
+    }
+
+    private void commit() {
+        if (uncommittedRows == 0) {
+            return;
+        }
+        session.commit(true);
+        uncommittedRows = 0;
+        clearCaches();
+    }
+
+    /**
+     * Rows are written behind MyBatis' back, cached results that may include the table must be discarded.
+     */
+    private void clearCaches() {
+        session.clearCache();
+        Cache cache = ms.getCache();
+        if (cache != null) {
+            cache.clear();
+        }
+        for (Interceptor interceptor : configuration.getInterceptors()) {
+            if (interceptor instanceof SecondLevelCacheInterceptor) {
+                ((SecondLevelCacheInterceptor) interceptor).getCaches().clear();
+            } else if (interceptor instanceof MemoInterceptor) {
+                ((MemoInterceptor) interceptor).getMemoRegistry().invalidate(namespaceOf(ms.getId()));
+            }
+        }
+    }
+
+    @Nonnull
+    private static String namespaceOf(@Nonnull String statementId) {
+        int index = statementId.lastIndexOf('.');
+        return index > 0 ? statementId.substring(0, index) : statementId;
+    }
+
+    @Nonnull
+    private String expand(int rows) {
+        if (rows != expandedRows) {
+            StringBuilder b = new StringBuilder(prefix.length() + suffix.length() + rows * (tuple.length() + 2));
+            b.append(prefix).append(tuple);
+            for (int i = 1; i < rows; i++) {
+                b.append(", ").append(tuple);
+            }
+            expandedSql = b.append(suffix).toString();
+            expandedRows = rows;
+        }
+        return expandedSql;
+    }
+
+    @Nonnull
+    private PreparedStatement prepare(@Nonnull Connection connection, @Nonnull String sql) throws SQLException {
+        // full chunks share the same SQL, their statement is prepared once
+        if (statement != null && sql.equals(statementSql)) {
+            return statement;
+        }
+        closeStatement();
+        statement = connection.prepareStatement(sql);
+        statementSql = sql;
+        return statement;
+    }
+
+    private void closeStatement() throws SQLException {
+        if (statement != null) {
+            PreparedStatement ps = statement;
+            statement = null;
+            statementSql = null;
+            ps.close();
+        }
+    }
+
+    /**
+     * Binds the parameters of a single row, starting after the given index.
+     *
+     * @return the index of the last parameter bound
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private int bind(@Nonnull PreparedStatement ps, int index, @Nonnull BoundSql boundSql) throws SQLException {
+        ParameterResolver parameterResolver = new ParameterResolver(configuration, boundSql);
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            Object value = parameterResolver.resolve(parameterMapping);
+            TypeHandler typeHandler = parameterMapping.getTypeHandler();
+            JdbcType jdbcType = parameterMapping.getJdbcType();
+            if (value == null && jdbcType == null) {
+                jdbcType = configuration.getJdbcTypeForNull();
+            }
+            typeHandler.setParameter(ps, ++index, value, jdbcType);
+        }
+        return index;
+    }
+
+    private static int countParameters(@Nonnull BoundSql boundSql) {
+        int count = 0;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            if (parameterMapping.getMode() != ParameterMode.OUT) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int findClosingParenthesis(@Nonnull String sql, int open) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = open; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int countPlaceholders(@Nonnull String sql) {
+        int count = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '?') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.plugins.mybatis.exceptions.RuntimeMybatisException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pulls rows from a {@code Cursor} one at a time. The cursor and its session are closed as soon as the last row has
+ * been read, iteration fails, or the stream is closed, whichever happens first.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class CursorSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+    private static final Logger LOG = LoggerFactory.getLogger(CursorSpliterator.class);
+
+    private final String sessionFactoryName;
+    private final SqlSession session;
+    private final Cursor<T> cursor;
+    private final Iterator<T> iterator;
+    private boolean closed;
+
+    public CursorSpliterator(@Nonnull String sessionFactoryName, @Nonnull SqlSession session, @Nonnull Cursor<T> cursor) {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.sessionFactoryName = sessionFactoryName;
+        this.session = requireNonNull(session, "Argument 'session' must not be null");
+        this.cursor = requireNonNull(cursor, "Argument 'cursor' must not be null");
+        this.iterator = cursor.iterator();
+    }
+
+    @Nonnull
+    public static <T> Stream<T> stream(@Nonnull String sessionFactoryName, @Nonnull SqlSession session, @Nonnull Cursor<T> cursor) {
+        CursorSpliterator<T> spliterator = new CursorSpliterator<>(sessionFactoryName, session, cursor);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+
+        T row;
+        try {
+            if (!iterator.hasNext()) {
+                close();
+                return false;
+            }
+            row = iterator.next();
+        } catch (RuntimeException e) {
+            close();
+            throw new RuntimeMybatisException(sessionFactoryName, e);
+        }
+        action.accept(row);
+        return true;
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            cursor.close();
+        } catch (Exception e) {
+            LOG.warn("Could not close cursor on mybatis '" + sessionFactoryName + "'", e);
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Emits the rows of a stream to a single subscriber, reading at most one row beyond those requested. The query is
+ * executed on the first request; rows are read and emitted on the given executor, one drain at a time. The end of the
+ * rows is looked for as soon as the requested rows have been emitted, thus {@code onComplete} may be signalled without
+ * outstanding demand. The stream (and thus its session) is closed as soon as it completes, fails or the subscription
+ * is cancelled.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class CursorSubscription<T> implements Subscription, Runnable {
+    private final Subscriber<? super T> subscriber;
+    private final Supplier<Stream<T>> streamFactory;
+    private final Executor executor;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable error;
+
+    // only accessed while holding wip
+    private Stream<T> stream;
+    private Iterator<T> iterator;
+    private boolean done;
+
+    public CursorSubscription(@Nonnull Subscriber<? super T> subscriber, @Nonnull Supplier<Stream<T>> streamFactory, @Nonnull Executor executor) {
+        this.subscriber = requireNonNull(subscriber, "Argument 'subscriber' must not be null");
+        this.streamFactory = requireNonNull(streamFactory, "Argument 'streamFactory' must not be null");
+        this.executor = requireNonNull(executor, "Argument 'executor' must not be null");
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0) {
+            error = new IllegalArgumentException("Requested " + n + " rows; must be positive (rule 3.9)");
+        } else {
+            long current;
+            long next;
+            do {
+                current = requested.get();
+                if (current == Long.MAX_VALUE) {
+                    return;
+                }
+                next = current + n;
+                if (next < 0) {
+                    next = Long.MAX_VALUE;
+                }
+            } while (!requested.compareAndSet(current, next));
+        }
+        schedule();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        if (wip.getAndIncrement() == 0) {
+            // nothing is being read, release the connection right away
+            int missed = 1;
+            do {
+                release();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+
+    @Override
+    public void run() {
+        int missed = 1;
+        do {
+            if (!done) {
+                drain();
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void schedule() {
+        if (wip.getAndIncrement() == 0) {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                error = e;
+                run();
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            Throwable failure = error;
+            if (failure != null) {
+                terminate();
+                subscriber.onError(failure);
+                return;
+            }
+
+            if (iterator == null) {
+                stream = streamFactory.get();
+                iterator = stream.iterator();
+            }
+
+            long r = requested.get();
+            long emitted = 0;
+            while (emitted != r) {
+                if (cancelled) {
+                    terminate();
+                    return;
+                }
+                if (!iterator.hasNext()) {
+                    terminate();
+                    subscriber.onComplete();
+                    return;
+                }
+                subscriber.onNext(iterator.next());
+                emitted++;
+            }
+
+            // once demand is met the end of the rows is looked for right away, reading at most one row ahead, so that
+            // the session is not held until the subscriber requests more
+            if (emitted != 0 && !cancelled && !iterator.hasNext()) {
+                terminate();
+                subscriber.onComplete();
+                return;
+            }
+            if (r != Long.MAX_VALUE && emitted != 0) {
+                requested.addAndGet(-emitted);
+            }
+        } catch (Throwable t) {
+            terminate();
+            subscriber.onError(t);
+        }
+    }
+
+    private void terminate() {
+        done = true;
+        release();
+    }
+
+    private void release() {
+        Stream<T> s = stream;
+        stream = null;
+        iterator = null;
+        if (s != null) {
+            s.close();
+        }
+    }
+}
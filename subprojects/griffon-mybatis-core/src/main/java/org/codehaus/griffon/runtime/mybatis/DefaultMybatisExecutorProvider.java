@@ -0,0 +1,173 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.datasource.DataSourceFactory;
+import griffon.plugins.mybatis.MybatisExecutorProvider;
+import griffon.plugins.mybatis.MybatisFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static griffon.util.ConfigUtils.getConfigValueAsInt;
+import static griffon.util.ConfigUtils.getConfigValueAsString;
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates one bounded executor per session factory. The number of threads matches the maximum size of the
+ * connection pool so that a running task never waits for a connection held by another async task; excess work
+ * is queued up to a fixed capacity and rejected afterwards.
+ * <p>
+ * Session factories configured with {@code async_backend = 'virtual'} run every task on its own virtual thread
+ * instead, gated by a semaphore sized after the connection pool. Both backends accept the same number of pending
+ * tasks before rejecting new ones. This backend requires a JVM that supports virtual threads; platform threads are
+ * used otherwise.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class DefaultMybatisExecutorProvider implements MybatisExecutorProvider {
+    public static final String KEY_ASYNC_POOL_SIZE = "async_pool_size";
+    public static final String KEY_ASYNC_QUEUE_SIZE = "async_queue_size";
+    public static final String KEY_ASYNC_BACKEND = "async_backend";
+    public static final String BACKEND_PLATFORM = "platform";
+    public static final String BACKEND_VIRTUAL = "virtual";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultMybatisExecutorProvider.class);
+    private static final String ERROR_SESSION_FACTORY_NAME_BLANK = "Argument 'sessionFactoryName' must not be blank";
+    private static final int QUEUE_SIZE_FACTOR = 8;
+    private static final Method VIRTUAL_THREAD_EXECUTOR_FACTORY = resolveVirtualThreadExecutorFactory();
+
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final MybatisFactory mybatisFactory;
+    private final DataSourceFactory dataSourceFactory;
+
+    @Inject
+    public DefaultMybatisExecutorProvider(@Nonnull MybatisFactory mybatisFactory, @Nonnull DataSourceFactory dataSourceFactory) {
+        this.mybatisFactory = requireNonNull(mybatisFactory, "Argument 'mybatisFactory' must not be null");
+        this.dataSourceFactory = requireNonNull(dataSourceFactory, "Argument 'dataSourceFactory' must not be null");
+    }
+
+    @Nonnull
+    @Override
+    public ExecutorService getExecutorService(@Nonnull String sessionFactoryName) {
+        requireNonBlank(sessionFactoryName, ERROR_SESSION_FACTORY_NAME_BLANK);
+        ExecutorService executorService = executors.get(sessionFactoryName);
+        if (executorService == null) {
+            executorService = executors.computeIfAbsent(sessionFactoryName, this::createExecutorService);
+        }
+        return executorService;
+    }
+
+    @Override
+    public void shutdown(@Nonnull String sessionFactoryName) {
+        requireNonBlank(sessionFactoryName, ERROR_SESSION_FACTORY_NAME_BLANK);
+        ExecutorService executorService = executors.remove(sessionFactoryName);
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    @Nonnull
+    protected ExecutorService createExecutorService(@Nonnull String sessionFactoryName) {
+        Map<String, Object> config = mybatisFactory.getConfigurationFor(sessionFactoryName);
+        int poolSize = getConfigValueAsInt(config, KEY_ASYNC_POOL_SIZE, resolveConnectionPoolSize(sessionFactoryName));
+        int queueSize = getConfigValueAsInt(config, KEY_ASYNC_QUEUE_SIZE, poolSize * QUEUE_SIZE_FACTOR);
+
+        if (BACKEND_VIRTUAL.equalsIgnoreCase(getConfigValueAsString(config, KEY_ASYNC_BACKEND, BACKEND_PLATFORM))) {
+            ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+            if (virtualThreadExecutor != null) {
+                LOG.debug("Creating virtual thread executor for mybatis '{}' with {} permits and a queue of {}", sessionFactoryName, poolSize, queueSize);
+                return new GatedExecutorService(virtualThreadExecutor, poolSize, queueSize);
+            }
+            LOG.warn("Virtual threads are not available in this JVM. Mybatis '{}' will use platform threads instead", sessionFactoryName);
+        }
+
+        LOG.debug("Creating async executor for mybatis '{}' with {} threads and a queue of {}", sessionFactoryName, poolSize, queueSize);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(queueSize), new NamedThreadFactory("mybatis-" + sessionFactoryName + "-async-"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    protected int resolveConnectionPoolSize(@Nonnull String sessionFactoryName) {
+        int maximumPoolSize = DefaultMybatisFactory.getMaximumPoolSize(dataSourceFactory, sessionFactoryName);
+        // unpooled datasources open as many connections as requested
+        return maximumPoolSize > 0 ? maximumPoolSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return {@code true} if the running JVM can create virtual threads, {@code false} otherwise.
+     */
+    public static boolean isVirtualThreadsSupported() {
+        return VIRTUAL_THREAD_EXECUTOR_FACTORY != null;
+    }
+
+    @Nullable
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (VIRTUAL_THREAD_EXECUTOR_FACTORY == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_EXECUTOR_FACTORY.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.warn("Could not create a virtual thread executor", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Method resolveVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger(0);
+        private final String prefix;
+
+        private NamedThreadFactory(@Nonnull String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
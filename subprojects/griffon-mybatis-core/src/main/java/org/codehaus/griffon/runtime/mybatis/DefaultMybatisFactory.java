@@ -18,7 +18,7 @@
 package org.codehaus.griffon.runtime.mybatis;
 
 import griffon.annotations.core.Nonnull;
-import griffon.core.ApplicationClassLoader;
+import griffon.annotations.core.Nullable;
 import griffon.core.GriffonApplication;
 import griffon.core.env.Metadata;
 import griffon.core.injection.Injector;
@@ -27,34 +27,65 @@ import griffon.plugins.datasource.DataSourceStorage;
 import griffon.plugins.monitor.MBeanManager;
 import griffon.plugins.mybatis.MybatisBootstrap;
 import griffon.plugins.mybatis.MybatisFactory;
-import griffon.plugins.mybatis.MybatisMapper;
+import griffon.plugins.mybatis.MybatisMapperRegistry;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
 import griffon.plugins.mybatis.events.MybatisConnectEndEvent;
 import griffon.plugins.mybatis.events.MybatisConnectStartEvent;
 import griffon.plugins.mybatis.events.MybatisDisconnectEndEvent;
 import griffon.plugins.mybatis.events.MybatisDisconnectStartEvent;
+import griffon.plugins.mybatis.events.MybatisPoolExhaustedEvent;
+import griffon.plugins.mybatis.events.MybatisSessionLeakEvent;
 import griffon.util.GriffonClassUtils;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.TransactionFactory;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
 import org.codehaus.griffon.runtime.core.storage.AbstractObjectFactory;
+import org.codehaus.griffon.runtime.mybatis.cache.MemoInterceptor;
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCacheInterceptor;
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCaches;
+import org.codehaus.griffon.runtime.mybatis.monitor.ConnectionPoolMonitor;
+import org.codehaus.griffon.runtime.mybatis.monitor.SecondLevelCacheMonitor;
+import org.codehaus.griffon.runtime.mybatis.monitor.SlowQueryMonitor;
 import org.codehaus.griffon.runtime.mybatis.monitor.SqlSessionFactoryMonitor;
-import org.kordamp.jipsy.util.TypeLoader;
+import org.codehaus.griffon.runtime.mybatis.monitor.SqlStatementMonitor;
+import org.codehaus.griffon.runtime.mybatis.pool.InstrumentedDataSource;
+import org.codehaus.griffon.runtime.mybatis.pool.StatementCachingDataSource;
+import org.codehaus.griffon.runtime.mybatis.routing.ReadWriteRoutingInterceptor;
+import org.codehaus.griffon.runtime.mybatis.routing.Replica;
+import org.codehaus.griffon.runtime.mybatis.routing.RoutingTransactionFactory;
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQueryInterceptor;
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQueryLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
-import static griffon.core.GriffonExceptionHandler.sanitize;
+import static griffon.util.ConfigUtils.getConfigValue;
 import static griffon.util.ConfigUtils.getConfigValueAsBoolean;
+import static griffon.util.ConfigUtils.getConfigValueAsInt;
+import static griffon.util.ConfigUtils.getConfigValueAsLong;
+import static griffon.util.ConfigUtils.getConfigValueAsString;
+import static griffon.util.GriffonNameUtils.isBlank;
 import static griffon.util.GriffonNameUtils.requireNonBlank;
 import static java.util.Objects.requireNonNull;
 
@@ -62,19 +93,70 @@ import static java.util.Objects.requireNonNull;
  * @author Andres Almiray
  */
 public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFactory> implements MybatisFactory {
+    public static final String KEY_SHARE_CONFIGURATION = "share_configuration";
+    public static final String KEY_LAZY_MAPPERS = "lazy_mappers";
+    public static final String KEY_SESSION_LEAK_THRESHOLD = "session_leak_threshold";
+    public static final String KEY_SESSION_STACK_TRACE = "session_stack_trace";
+    public static final String KEY_REPLICAS = "replicas";
+    public static final String KEY_REPLICA_BALANCING = "replica_balancing";
+    public static final String KEY_SHARDS = "shards";
+    public static final String KEY_POOL_METRICS = "pool_metrics";
+    public static final String KEY_EXECUTOR_TYPE = "executor_type";
+    public static final String KEY_STATEMENT_CACHE_SIZE = "statement_cache_size";
+
     private static final Logger LOG = LoggerFactory.getLogger(DefaultMybatisFactory.class);
     private static final String ERROR_SESSION_FACTORY_NAME_BLANK = "Argument 'sessionFactoryName' must not be blank";
+    // Hikari's default
+    private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+    private static final String[] PLUGIN_KEYS = {
+        "connect_on_startup",
+        "jmx",
+        KEY_SHARE_CONFIGURATION,
+        KEY_LAZY_MAPPERS,
+        KEY_SESSION_LEAK_THRESHOLD,
+        KEY_SESSION_STACK_TRACE,
+        KEY_REPLICAS,
+        KEY_REPLICA_BALANCING,
+        KEY_POOL_METRICS,
+        KEY_EXECUTOR_TYPE,
+        KEY_STATEMENT_CACHE_SIZE,
+        SecondLevelCaches.KEY_CACHE_POLICY,
+        SecondLevelCaches.KEY_CACHE_SIZE,
+        SecondLevelCaches.KEY_CACHE_STORE,
+        SecondLevelCaches.KEY_CACHE_OFFHEAP_BYTES,
+        SecondLevelCaches.KEY_CACHE_FLUSH_INTERVAL,
+        SecondLevelCaches.KEY_CACHE_NAMESPACES,
+        SlowQueryLog.KEY_SLOW_QUERY_THRESHOLD,
+        SlowQueryLog.KEY_SLOW_QUERY_SAMPLE_RATE,
+        SlowQueryLog.KEY_SLOW_QUERY_LOG_SIZE,
+        SqlSessionSettings.KEY_TRANSACTIONAL,
+        SqlSessionSettings.KEY_ISOLATION_LEVEL,
+        SqlSessionSettings.KEY_READ_ONLY,
+        SqlSessionSettings.KEY_BATCH_SIZE,
+        SqlSessionSettings.KEY_BATCH_BYTES,
+        SqlSessionSettings.KEY_ASYNC_UI_COMPLETION,
+        SqlSessionSettings.KEY_FETCH_SIZE,
+        SqlSessionSettings.KEY_PROPAGATION,
+        SqlSessionSettings.KEY_BULK_COMMIT,
+        DefaultMybatisExecutorProvider.KEY_ASYNC_POOL_SIZE,
+        DefaultMybatisExecutorProvider.KEY_ASYNC_QUEUE_SIZE,
+        DefaultMybatisExecutorProvider.KEY_ASYNC_BACKEND
+    };
     private final Set<String> sessionFactoryNames = new LinkedHashSet<>();
-    private final Set<Class<?>> mappers = new LinkedHashSet<>();
+    private final Set<String> shardNames = new LinkedHashSet<>();
+    private final Map<Map<String, Object>, Configuration> configurationTemplates = new HashMap<>();
+    private final Map<String, Object> dataSourceLocks = new ConcurrentHashMap<>();
     @Inject
     private DataSourceFactory dataSourceFactory;
     @Inject
     private DataSourceStorage dataSourceStorage;
     @Inject
-    private ApplicationClassLoader applicationClassLoader;
+    private MybatisMapperRegistry mybatisMapperRegistry;
     @Inject
     private Injector injector;
     @Inject
+    private MybatisMemoRegistry mybatisMemoRegistry;
+    @Inject
     private MBeanManager mBeanManager;
     @Inject
     private Metadata metadata;
@@ -88,6 +170,36 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
             Map<String, Object> sessionFactories = configuration.get(getPluralKey());
             sessionFactoryNames.addAll(sessionFactories.keySet());
         }
+        shardNames.addAll(getShardNames(configuration));
+    }
+
+    /**
+     * @return the names of the session factories listed as {@code shards} at the top level of the configuration.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static List<String> getShardNames(@Nonnull griffon.core.Configuration configuration) {
+        Object value = configuration.get(KEY_SHARDS, Collections.emptyList());
+        List<String> shards = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object shard : (Collection<Object>) value) {
+                shards.add(String.valueOf(shard));
+            }
+        }
+        return shards;
+    }
+
+    /**
+     * @return the maximum size of the connection pool of the given datasource, or {@code 0} if it is not pooled.
+     */
+    public static int getMaximumPoolSize(@Nonnull DataSourceFactory dataSourceFactory, @Nonnull String dataSourceName) {
+        requireNonNull(dataSourceFactory, "Argument 'dataSourceFactory' must not be null");
+        Map<String, Object> config = dataSourceFactory.getConfigurationFor(dataSourceName);
+        if (!getConfigValueAsBoolean(config, "pooled", true)) {
+            return 0;
+        }
+        Map<String, Object> pool = getConfigValue(config, "pool", Collections.<String, Object>emptyMap());
+        return Math.max(1, getConfigValueAsInt(pool, "maximumPoolSize", DEFAULT_MAXIMUM_POOL_SIZE));
     }
 
     @Nonnull
@@ -119,6 +231,7 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
     @Override
     public SqlSessionFactory create(@Nonnull String name) {
         Map<String, Object> config = narrowConfig(name);
+        long start = System.nanoTime();
         event(MybatisConnectStartEvent.of(name, config));
         SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(config, name);
 
@@ -133,7 +246,9 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
             }
         }
 
-        event(MybatisConnectEndEvent.of(name, config, sqlSessionFactory));
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.debug("Created mybatis session factory '{}' in {} ms", name, duration);
+        event(MybatisConnectEndEvent.of(name, config, sqlSessionFactory, duration));
         return sqlSessionFactory;
     }
 
@@ -149,7 +264,17 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
             }
         }
 
+        DataSource dataSource = instance.getConfiguration().getEnvironment().getDataSource();
+        if (dataSource instanceof StatementCachingDataSource) {
+            ((StatementCachingDataSource) dataSource).clear();
+        }
         closeDataSource(name);
+        for (String replica : getReplicaNames(config)) {
+            // replicas may double as session factories of their own
+            if (!sessionFactoryNames.contains(replica)) {
+                closeDataSource(replica);
+            }
+        }
 
         if (getConfigValueAsBoolean(config, "jmx", true)) {
             unregisterMBeans((JMXAwareSqlSessionFactory) instance);
@@ -162,6 +287,31 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
         RecordingSqlSessionFactory recordingSqlSessionFactory = (RecordingSqlSessionFactory) sqlSessionFactory.getDelegate();
         SqlSessionFactoryMonitor sqlSessionFactoryMonitor = new SqlSessionFactoryMonitor(metadata, recordingSqlSessionFactory, name);
         sqlSessionFactory.addObjectName(mBeanManager.registerMBean(sqlSessionFactoryMonitor, false).getCanonicalName());
+
+        recordingSqlSessionFactory.setStatementMetricsEnabled(true);
+        SqlStatementMonitor sqlStatementMonitor = new SqlStatementMonitor(metadata, recordingSqlSessionFactory, name);
+        sqlSessionFactory.addObjectName(mBeanManager.registerMBean(sqlStatementMonitor, false).getCanonicalName());
+
+        DataSource dataSource = recordingSqlSessionFactory.getConfiguration().getEnvironment().getDataSource();
+        if (dataSource instanceof StatementCachingDataSource) {
+            dataSource = ((StatementCachingDataSource) dataSource).getDelegate();
+        }
+        if (dataSource instanceof InstrumentedDataSource) {
+            ConnectionPoolMonitor connectionPoolMonitor = new ConnectionPoolMonitor(metadata, (InstrumentedDataSource) dataSource, name);
+            sqlSessionFactory.addObjectName(mBeanManager.registerMBean(connectionPoolMonitor, false).getCanonicalName());
+        }
+
+        for (Interceptor interceptor : recordingSqlSessionFactory.getConfiguration().getInterceptors()) {
+            if (interceptor instanceof SecondLevelCacheInterceptor) {
+                SecondLevelCaches caches = ((SecondLevelCacheInterceptor) interceptor).getCaches();
+                SecondLevelCacheMonitor secondLevelCacheMonitor = new SecondLevelCacheMonitor(metadata, caches, name);
+                sqlSessionFactory.addObjectName(mBeanManager.registerMBean(secondLevelCacheMonitor, false).getCanonicalName());
+            } else if (interceptor instanceof SlowQueryInterceptor) {
+                SlowQueryLog slowQueryLog = ((SlowQueryInterceptor) interceptor).getSlowQueryLog();
+                SlowQueryMonitor slowQueryMonitor = new SlowQueryMonitor(metadata, slowQueryLog, name);
+                sqlSessionFactory.addObjectName(mBeanManager.registerMBean(slowQueryMonitor, false).getCanonicalName());
+            }
+        }
     }
 
     private void unregisterMBeans(@Nonnull JMXAwareSqlSessionFactory sqlSessionFactory) {
@@ -175,81 +325,182 @@ public class DefaultMybatisFactory extends AbstractObjectFactory<SqlSessionFacto
     @SuppressWarnings("ConstantConditions")
     private SqlSessionFactory createSqlSessionFactory(@Nonnull Map<String, Object> config, @Nonnull String dataSourceName) {
         DataSource dataSource = getDataSource(dataSourceName);
-        Environment environment = new Environment(dataSourceName, new JdbcTransactionFactory(), dataSource);
-        Configuration configuration = new Configuration(environment);
+        if (getConfigValueAsBoolean(config, KEY_POOL_METRICS, false)) {
+            dataSource = instrument(dataSourceName, dataSource);
+        }
+        int statementCacheSize = getConfigValueAsInt(config, KEY_STATEMENT_CACHE_SIZE, 0);
+        if (statementCacheSize > 0) {
+            dataSource = new StatementCachingDataSource(dataSource, statementCacheSize);
+        }
+        List<Replica> replicas = new ArrayList<>();
+        for (String replica : getReplicaNames(config)) {
+            replicas.add(new Replica(replica, getDataSource(replica)));
+        }
+        TransactionFactory transactionFactory = new JdbcTransactionFactory();
+        if (!replicas.isEmpty()) {
+            String balancing = getConfigValueAsString(config, KEY_REPLICA_BALANCING, "round_robin");
+            boolean readOnly = getConfigValueAsBoolean(config, SqlSessionSettings.KEY_READ_ONLY, false);
+            transactionFactory = new RoutingTransactionFactory(replicas, RoutingTransactionFactory.Balancing.of(balancing), readOnly);
+        } else if (!getConfigValueAsBoolean(config, "jmx", true)) {
+            // without statement metrics sessions can be tracked by their transactions, no wrapper required
+            transactionFactory = new TrackingTransactionFactory();
+        }
+        Environment environment = new Environment(dataSourceName, transactionFactory, dataSource);
 
         Map<String, Object> copyOfConfig = new LinkedHashMap<>(config);
-        copyOfConfig.remove("connect_on_startup");
-        GriffonClassUtils.setProperties(configuration, copyOfConfig);
+        for (String key : PLUGIN_KEYS) {
+            copyOfConfig.remove(key);
+        }
 
-        if (mappers.isEmpty()) {
-            readMappers();
+        Configuration template = null;
+        // shards are expected to be identical, thus they parse mappers once unless told otherwise
+        if (getConfigValueAsBoolean(config, KEY_SHARE_CONFIGURATION, shardNames.contains(dataSourceName))) {
+            template = getConfigurationTemplate(copyOfConfig);
         }
 
-        for (Class<?> mapper : mappers) {
-            configuration.addMapper(mapper);
+        Configuration configuration;
+        if (template != null) {
+            SharedConfiguration sharedConfiguration = new SharedConfiguration(environment, template);
+            GriffonClassUtils.setProperties(sharedConfiguration, copyOfConfig);
+            sharedConfiguration.importTemplate();
+            configuration = sharedConfiguration;
+        } else if (getConfigValueAsBoolean(config, KEY_LAZY_MAPPERS, false)) {
+            configuration = new LazyConfiguration(environment, mybatisMapperRegistry.getMapperClasses());
+            GriffonClassUtils.setProperties(configuration, copyOfConfig);
+        } else {
+            configuration = new Configuration(environment);
+            GriffonClassUtils.setProperties(configuration, copyOfConfig);
+            for (Class<?> mapper : mybatisMapperRegistry.getMapperClasses()) {
+                configuration.addMapper(mapper);
+            }
         }
 
-        return new RecordingSqlSessionFactory(new SqlSessionFactoryBuilder().build(configuration));
-    }
+        String executorType = getConfigValueAsString(config, KEY_EXECUTOR_TYPE, null);
+        if (!isBlank(executorType)) {
+            configuration.setDefaultExecutorType(ExecutorType.valueOf(executorType.trim().toUpperCase(Locale.ENGLISH)));
+        }
 
-    private void closeDataSource(@Nonnull String dataSourceName) {
-        DataSource dataSource = dataSourceStorage.get(dataSourceName);
-        if (dataSource != null) {
-            dataSourceFactory.destroy(dataSourceName, dataSource);
-            dataSourceStorage.remove(dataSourceName);
+        configuration.addInterceptor(new FetchSizeInterceptor());
+        if (!replicas.isEmpty()) {
+            configuration.addInterceptor(new ReadWriteRoutingInterceptor());
+        }
+        // registered ahead of the cache so that cache hits are not timed
+        SlowQueryLog slowQueryLog = SlowQueryLog.of(config);
+        if (slowQueryLog != null) {
+            configuration.addInterceptor(new SlowQueryInterceptor(dataSourceName, slowQueryLog));
+        }
+        SecondLevelCaches caches = SecondLevelCaches.of(config);
+        if (caches != null) {
+            configuration.addInterceptor(new SecondLevelCacheInterceptor(caches));
         }
+        // registered last so that memoized results skip both the cache and the slow query log
+        if (mybatisMemoRegistry.isEnabled()) {
+            configuration.addInterceptor(new MemoInterceptor(mybatisMemoRegistry));
+        }
+
+        RecordingSqlSessionFactory sqlSessionFactory = new RecordingSqlSessionFactory(new SqlSessionFactoryBuilder().build(configuration));
+        sqlSessionFactory.setLeakThreshold(getConfigValueAsLong(config, KEY_SESSION_LEAK_THRESHOLD, 0L), TimeUnit.MILLISECONDS);
+        sqlSessionFactory.setCaptureStackTraces(getConfigValueAsBoolean(config, KEY_SESSION_STACK_TRACE, false));
+        sqlSessionFactory.setSessionLeakListener((age, closed, openedAt) -> {
+            LOG.warn("Mybatis session on '{}' has been held for {} ms", dataSourceName, age);
+            event(MybatisSessionLeakEvent.of(dataSourceName, age, closed, openedAt));
+        });
+        return sqlSessionFactory;
     }
 
-    @Nonnull
-    private DataSource getDataSource(@Nonnull String dataSourceName) {
-        DataSource dataSource = dataSourceStorage.get(dataSourceName);
-        if (dataSource == null) {
-            dataSource = dataSourceFactory.create(dataSourceName);
-            dataSourceStorage.set(dataSourceName, dataSource);
+    /**
+     * Returns a fully parsed configuration shared by all session factories with the given settings, or
+     * {@code null} if it can't be shared.
+     */
+    @Nullable
+    private synchronized Configuration getConfigurationTemplate(@Nonnull Map<String, Object> settings) {
+        Configuration template = configurationTemplates.get(settings);
+        if (template == null) {
+            Map<String, Object> key = new LinkedHashMap<>(settings);
+            template = new Configuration();
+            GriffonClassUtils.setProperties(template, new LinkedHashMap<>(settings));
+            for (Class<?> mapper : mybatisMapperRegistry.getMapperClasses()) {
+                template.addMapper(mapper);
+            }
+            // forces pending statements to be resolved
+            template.getMappedStatementNames();
+            if (!template.getCacheNames().isEmpty()) {
+                LOG.warn("Mybatis configuration can not be shared as mappers define caches");
+            }
+            configurationTemplates.put(key, template);
         }
-        return dataSource;
+
+        // caches would leak entries between datasources
+        return template.getCacheNames().isEmpty() ? template : null;
     }
 
     @Nonnull
-    protected SqlSession openSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory) {
-        return sqlSessionFactory.openSession(true);
+    private InstrumentedDataSource instrument(@Nonnull String dataSourceName, @Nonnull DataSource dataSource) {
+        int maximumPoolSize = getMaximumPoolSize(dataSourceFactory, dataSourceName);
+        InstrumentedDataSource instrumentedDataSource = new InstrumentedDataSource(dataSource, maximumPoolSize);
+        instrumentedDataSource.setPoolExhaustionListener((activeConnections, pendingAcquisitions, waitTime, timedOut) -> {
+            if (timedOut) {
+                LOG.warn("Mybatis '{}' timed out after {} ms waiting for a connection, {} in use", dataSourceName, waitTime, activeConnections);
+            } else {
+                LOG.warn("Mybatis '{}' is using all {} connections of its pool", dataSourceName, activeConnections);
+            }
+            event(MybatisPoolExhaustedEvent.of(dataSourceName, activeConnections, maximumPoolSize, pendingAcquisitions, waitTime, timedOut));
+        });
+        return instrumentedDataSource;
     }
 
-    private void readMappers() {
-        TypeLoader.load(applicationClassLoader.get(), "META-INF/types/", MybatisMapper.class, new TypeLoader.LineProcessor() {
-            @Override
-            public void process(@Nonnull ClassLoader classLoader, @Nonnull Class<?> type, @Nonnull String line) {
-                try {
-                    Class<?> mapperClass = loadClass(line.trim(), classLoader);
-                    LOG.debug("Registering {} as mybatis mapper class", mapperClass.getName());
-                    mappers.add(mapperClass);
-                } catch (Exception e) {
-                    if (LOG.isWarnEnabled()) {
-                        LOG.warn("Could not load " + type.getName() + " with " + line, sanitize(e));
-                    }
-                }
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private static List<String> getReplicaNames(@Nonnull Map<String, Object> config) {
+        Object value = getConfigValue(config, KEY_REPLICAS, Collections.emptyList());
+        List<String> replicas = new ArrayList<>();
+        if (value instanceof Collection) {
+            for (Object replica : (Collection<Object>) value) {
+                replicas.add(String.valueOf(replica));
             }
-        });
+        }
+        return replicas;
     }
 
-    protected Class<?> loadClass(@Nonnull String className, @Nonnull ClassLoader classLoader) throws ClassNotFoundException {
-        ClassNotFoundException cnfe;
+    private void closeDataSource(@Nonnull String dataSourceName) {
+        synchronized (getDataSourceLock(dataSourceName)) {
+            DataSource dataSource = dataSourceStorage.get(dataSourceName);
+            if (dataSource != null) {
+                dataSourceFactory.destroy(dataSourceName, dataSource);
+                dataSourceStorage.remove(dataSourceName);
+            }
+        }
+    }
 
-        ClassLoader cl = DefaultMybatisFactory.class.getClassLoader();
-        try {
-            return cl.loadClass(className);
-        } catch (ClassNotFoundException e) {
-            cnfe = e;
+    /**
+     * Session factories created in parallel may share a datasource (as a replica, for example), thus a missing
+     * datasource is created under a lock dedicated to its name, like {@code DefaultMybatisStorage} does for session
+     * factories.
+     */
+    @Nonnull
+    private DataSource getDataSource(@Nonnull String dataSourceName) {
+        DataSource dataSource = dataSourceStorage.get(dataSourceName);
+        if (dataSource != null) {
+            return dataSource;
         }
 
-        cl = classLoader;
-        try {
-            return cl.loadClass(className);
-        } catch (ClassNotFoundException e) {
-            cnfe = e;
+        synchronized (getDataSourceLock(dataSourceName)) {
+            dataSource = dataSourceStorage.get(dataSourceName);
+            if (dataSource == null) {
+                dataSource = dataSourceFactory.create(dataSourceName);
+                dataSourceStorage.set(dataSourceName, dataSource);
+            }
+            return dataSource;
         }
+    }
+
+    @Nonnull
+    private Object getDataSourceLock(@Nonnull String dataSourceName) {
+        return dataSourceLocks.computeIfAbsent(dataSourceName, k -> new Object());
+    }
 
-        throw cnfe;
+    @Nonnull
+    protected SqlSession openSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory) {
+        return sqlSessionFactory.openSession(true);
     }
 }
@@ -19,17 +19,39 @@ package org.codehaus.griffon.runtime.mybatis;
 
 import griffon.annotations.core.Nonnull;
 import griffon.annotations.core.Nullable;
+import griffon.core.mvc.MVCGroup;
+import griffon.core.threading.UIThreadManager;
+import griffon.plugins.mybatis.BulkInsertResult;
 import griffon.plugins.mybatis.MybatisCallback;
+import griffon.plugins.mybatis.MybatisExecutorProvider;
 import griffon.plugins.mybatis.MybatisFactory;
 import griffon.plugins.mybatis.MybatisHandler;
+import griffon.plugins.mybatis.MybatisMapperCallback;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
 import griffon.plugins.mybatis.MybatisStorage;
+import griffon.plugins.mybatis.Propagation;
 import griffon.plugins.mybatis.exceptions.RuntimeMybatisException;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.codehaus.griffon.runtime.mybatis.routing.RoutingTransactionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static griffon.util.GriffonNameUtils.requireNonBlank;
 import static java.util.Objects.requireNonNull;
@@ -42,9 +64,28 @@ public class DefaultMybatisHandler implements MybatisHandler {
     private static final String ERROR_SQLSESSION_BLANK = "Argument 'sessionFactoryName' must not be blank";
     private static final String ERROR_SQLSESSION_NULL = "Argument 'session' must not be null";
     private static final String ERROR_CALLBACK_NULL = "Argument 'callback' must not be null";
+    private static final String ERROR_MAPPER_TYPE_NULL = "Argument 'mapperType' must not be null";
+    private static final String ERROR_EXECUTOR_TYPE_NULL = "Argument 'executorType' must not be null";
+    private static final String ERROR_PROPAGATION_NULL = "Argument 'propagation' must not be null";
+    private static final String ERROR_STATEMENT_ID_BLANK = "Argument 'statementId' must not be blank";
+    private static final String ERROR_ROWS_NULL = "Argument 'rows' must not be null";
+    private static final String ERROR_GROUP_NULL = "Argument 'group' must not be null";
 
     private final MybatisFactory mybatisFactory;
     private final MybatisStorage mybatisStorage;
+    private final Map<String, SqlSessionSettings> settings = new ConcurrentHashMap<>();
+    private final Map<String, ThreadBoundSqlSession> threadBoundSessions = new ConcurrentHashMap<>();
+    private final AtomicLong requestScopes = new AtomicLong();
+    private final ThreadLocal<Map<String, PropagatedSqlSession>> boundSessions = new ThreadLocal<>();
+
+    @Inject
+    private MybatisExecutorProvider mybatisExecutorProvider;
+
+    @Inject
+    private UIThreadManager uiThreadManager;
+
+    @Inject
+    private MybatisMemoRegistry mybatisMemoRegistry;
 
     @Inject
     public DefaultMybatisHandler(@Nonnull MybatisFactory mybatisFactory, @Nonnull MybatisStorage mybatisStorage) {
@@ -63,18 +104,296 @@ public class DefaultMybatisHandler implements MybatisHandler {
     public <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
         requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
         requireNonNull(callback, ERROR_CALLBACK_NULL);
-        SqlSession session = getSqlSession(sessionFactoryName);
+        return doWithSqlSession(sessionFactoryName, null, null, callback);
+    }
+
+    @Nullable
+    @Override
+    public <R> R withSqlSession(@Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        return withSqlSession(DefaultMybatisFactory.KEY_DEFAULT, propagation, callback);
+    }
+
+    @Nullable
+    @Override
+    public <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(propagation, ERROR_PROPAGATION_NULL);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        return doWithSqlSession(sessionFactoryName, null, propagation, callback);
+    }
+
+    @Nullable
+    @Override
+    public <R> R withSqlSession(@Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        return withSqlSession(DefaultMybatisFactory.KEY_DEFAULT, executorType, callback);
+    }
+
+    @Nullable
+    @Override
+    public <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(executorType, ERROR_EXECUTOR_TYPE_NULL);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        return doWithSqlSession(sessionFactoryName, executorType, null, callback);
+    }
+
+    @Nullable
+    private <R> R doWithSqlSession(@Nonnull String sessionFactoryName, @Nullable ExecutorType executorType, @Nullable Propagation propagation, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        SqlSessionSettings sessionSettings = getSettings(sessionFactoryName);
+        if (propagation == null) {
+            propagation = sessionSettings.getPropagation();
+        }
+
+        Map<String, PropagatedSqlSession> sessions = boundSessions.get();
+        PropagatedSqlSession outerSession = sessions != null ? sessions.get(sessionFactoryName) : null;
+        if (outerSession != null && propagation == Propagation.REQUIRED) {
+            return joinSqlSession(sessionFactoryName, outerSession, executorType, callback);
+        }
+
+        SqlSessionFactory sqlSessionFactory = getSqlSessionFactory(sessionFactoryName);
+        if (executorType == null) {
+            executorType = sqlSessionFactory.getConfiguration().getDefaultExecutorType();
+        }
+        SqlSession session = getSqlSession(sessionFactoryName, sqlSessionFactory, sessionSettings, executorType);
+        // routing transactions flag every connection they open, replicas included
+        boolean readOnly = sessionSettings.isReadOnly() &&
+            !(sqlSessionFactory.getConfiguration().getEnvironment().getTransactionFactory() instanceof RoutingTransactionFactory);
+        // nested calls on the same session factory join this session unless they require a new one
+        PropagatedSqlSession propagatedSession = new PropagatedSqlSession(session, executorType);
+        if (sessions == null) {
+            sessions = new HashMap<>();
+            boundSessions.set(sessions);
+        }
+        sessions.put(sessionFactoryName, propagatedSession);
         try {
             LOG.debug("Executing statements on mybatis '{}'", sessionFactoryName);
-            return callback.handle(sessionFactoryName, session);
+            if (readOnly) {
+                session.getConnection().setReadOnly(true);
+            }
+            R result = callback.handle(sessionFactoryName, session);
+            if (propagatedSession.isRollbackOnly() && sessionSettings.isTransactional()) {
+                throw new IllegalStateException("Transaction on mybatis '" + sessionFactoryName + "' has been marked as rollback-only by a nested call");
+            }
+            session.commit();
+            return result;
         } catch (Exception e) {
+            rollback(session, e);
             throw new RuntimeMybatisException(sessionFactoryName, e);
         } finally {
+            if (outerSession != null) {
+                sessions.put(sessionFactoryName, outerSession);
+            } else {
+                sessions.remove(sessionFactoryName);
+                if (sessions.isEmpty()) {
+                    boundSessions.remove();
+                }
+            }
+            if (readOnly) {
+                resetReadOnly(sessionFactoryName, session);
+            }
+            session.close();
+        }
+    }
+
+    @Nullable
+    private <R> R joinSqlSession(@Nonnull String sessionFactoryName, @Nonnull PropagatedSqlSession session, @Nullable ExecutorType executorType, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        if (executorType != null && executorType != session.getExecutorType()) {
+            throw new RuntimeMybatisException(sessionFactoryName, new IllegalStateException("Cannot join a session with executor type " +
+                session.getExecutorType() + " on mybatis '" + sessionFactoryName + "' using executor type " + executorType));
+        }
+        try {
+            LOG.debug("Joining session on mybatis '{}'", sessionFactoryName);
+            return callback.handle(sessionFactoryName, session);
+        } catch (Exception e) {
+            session.setRollbackOnly();
+            throw new RuntimeMybatisException(sessionFactoryName, e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public <M, R> R withMapper(@Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback) throws RuntimeMybatisException {
+        return withMapper(DefaultMybatisFactory.KEY_DEFAULT, mapperType, callback);
+    }
+
+    @Nullable
+    @Override
+    public <M, R> R withMapper(@Nonnull String sessionFactoryName, @Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(mapperType, ERROR_MAPPER_TYPE_NULL);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        return withSqlSession(sessionFactoryName, (name, session) -> {
+            // mappers are created once per session factory and follow the session bound to the calling thread
+            ThreadBoundSqlSession threadBoundSession = getThreadBoundSqlSession(name, session);
+            SqlSession previous = threadBoundSession.bind(session);
+            try {
+                return callback.handle(name, threadBoundSession.getSharedMapper(mapperType));
+            } finally {
+                threadBoundSession.restore(previous);
+            }
+        });
+    }
+
+    @Nonnull
+    @Override
+    public <R> List<BatchResult> withBatchSqlSession(@Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        return withBatchSqlSession(DefaultMybatisFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    @Override
+    public <R> List<BatchResult> withBatchSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        requireUnboundSqlSession(sessionFactoryName, "withBatchSqlSession");
+        SqlSessionSettings sessionSettings = getSettings(sessionFactoryName);
+        SqlSessionFactory sqlSessionFactory = getSqlSessionFactory(sessionFactoryName);
+        TransactionIsolationLevel level = sessionSettings.getIsolationLevel();
+        SqlSession delegate = level != null ? sqlSessionFactory.openSession(ExecutorType.BATCH, level) : sqlSessionFactory.openSession(ExecutorType.BATCH, false);
+        BatchingSqlSession session = new BatchingSqlSession(delegate, sessionSettings.getBatchSize(), sessionSettings.getBatchBytes());
+        try {
+            LOG.debug("Executing batch statements on mybatis '{}'", sessionFactoryName);
+            callback.handle(sessionFactoryName, session);
+            session.flushStatements();
             session.commit();
+            return session.getBatchResults();
+        } catch (Exception e) {
+            rollback(session, e);
+            throw new RuntimeMybatisException(sessionFactoryName, e);
+        } finally {
             session.close();
         }
     }
 
+    @Nonnull
+    @Override
+    public <T> BulkInsertResult bulkInsert(@Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize) throws RuntimeMybatisException {
+        return bulkInsert(DefaultMybatisFactory.KEY_DEFAULT, statementId, rows, chunkSize);
+    }
+
+    @Nonnull
+    @Override
+    public <T> BulkInsertResult bulkInsert(@Nonnull String sessionFactoryName, @Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonBlank(statementId, ERROR_STATEMENT_ID_BLANK);
+        requireNonNull(rows, ERROR_ROWS_NULL);
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Argument 'chunkSize' must be greater than zero");
+        }
+        requireUnboundSqlSession(sessionFactoryName, "bulkInsert");
+        SqlSessionSettings sessionSettings = getSettings(sessionFactoryName);
+        // rows are committed by the inserter, either all at once or chunk by chunk
+        SqlSession session = openTransactionalSession(sessionFactoryName, getSqlSessionFactory(sessionFactoryName), ExecutorType.SIMPLE, sessionSettings.getIsolationLevel());
+        try {
+            LOG.debug("Bulk inserting with {} on mybatis '{}'", statementId, sessionFactoryName);
+            BulkInserter bulkInserter = new BulkInserter(session, session.getConfiguration().getMappedStatement(statementId), chunkSize, sessionSettings.getBulkCommit());
+            BulkInsertResult result = bulkInserter.insert(rows);
+            LOG.debug("Bulk inserted {} with {} on mybatis '{}'", result, statementId, sessionFactoryName);
+            return result;
+        } catch (Exception e) {
+            rollback(session, e);
+            throw new RuntimeMybatisException(sessionFactoryName, e);
+        } finally {
+            session.close();
+        }
+    }
+
+    @Nullable
+    @Override
+    public <R> R withMemo(@Nonnull Supplier<R> callback) {
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        // the memo lives as long as the callback does
+        String scope = "request#" + requestScopes.incrementAndGet();
+        mybatisMemoRegistry.create(scope);
+        try {
+            return mybatisMemoRegistry.withScope(scope, callback);
+        } finally {
+            mybatisMemoRegistry.destroy(scope);
+        }
+    }
+
+    @Nullable
+    @Override
+    public <R> R withMemo(@Nonnull MVCGroup group, @Nonnull Supplier<R> callback) {
+        requireNonNull(group, ERROR_GROUP_NULL);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        // MybatisAddon creates the memo when the group is initialized and discards it once the group is destroyed
+        return mybatisMemoRegistry.withScope(group.getMvcId(), callback);
+    }
+
+    @Nonnull
+    @Override
+    public <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull MybatisCallback<R> callback) {
+        return withSqlSessionAsync(DefaultMybatisFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    @Override
+    public <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        boolean completeInsideUI = getSettings(sessionFactoryName).isAsyncUICompletion();
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            mybatisExecutorProvider.getExecutorService(sessionFactoryName).execute(() -> {
+                R result = null;
+                Throwable failure = null;
+                try {
+                    result = withSqlSession(sessionFactoryName, callback);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+                complete(future, result, failure, completeInsideUI);
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Async executor for mybatis '{}' is saturated", sessionFactoryName);
+            future.completeExceptionally(new RuntimeMybatisException(sessionFactoryName, e));
+        }
+        return future;
+    }
+
+    @Nonnull
+    @Override
+    public <T> Stream<T> stream(@Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+        return stream(DefaultMybatisFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Stream<T> stream(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        return stream(sessionFactoryName, getSettings(sessionFactoryName).getFetchSize(), callback);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Stream<T> stream(@Nonnull String sessionFactoryName, int fetchSize, @Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        requireUnboundSqlSession(sessionFactoryName, "stream");
+        SqlSessionSettings sessionSettings = getSettings(sessionFactoryName);
+        // some drivers only honor the fetch size outside of autocommit mode
+        SqlSessionFactory sqlSessionFactory = getSqlSessionFactory(sessionFactoryName);
+        SqlSession session = openTransactionalSession(sessionFactoryName, sqlSessionFactory, sqlSessionFactory.getConfiguration().getDefaultExecutorType(), sessionSettings.getIsolationLevel());
+        try {
+            LOG.debug("Streaming results from mybatis '{}'", sessionFactoryName);
+            Cursor<T> cursor;
+            Integer previousFetchSize = fetchSize > 0 ? FetchSizeInterceptor.bind(fetchSize) : null;
+            try {
+                cursor = callback.handle(sessionFactoryName, session);
+            } finally {
+                if (fetchSize > 0) {
+                    FetchSizeInterceptor.restore(previousFetchSize);
+                }
+            }
+            requireNonNull(cursor, "Callback must return a Cursor");
+            return CursorSpliterator.stream(sessionFactoryName, session, cursor);
+        } catch (Exception e) {
+            session.close();
+            throw new RuntimeMybatisException(sessionFactoryName, e);
+        }
+    }
+
     @Override
     public void closeSqlSession() {
         closeSqlSession(DefaultMybatisFactory.KEY_DEFAULT);
@@ -87,20 +406,96 @@ public class DefaultMybatisHandler implements MybatisHandler {
             mybatisFactory.destroy(sessionFactoryName, mybatis);
             mybatisStorage.remove(sessionFactoryName);
         }
+        mybatisExecutorProvider.shutdown(sessionFactoryName);
+        settings.remove(sessionFactoryName);
+        threadBoundSessions.remove(sessionFactoryName);
+    }
+
+    /**
+     * Methods that open a session of their own can't join the session bound to the calling thread: their statements
+     * would not be part of its transaction and they would hold a second connection until it completes.
+     */
+    private void requireUnboundSqlSession(@Nonnull String sessionFactoryName, @Nonnull String method) {
+        Map<String, PropagatedSqlSession> sessions = boundSessions.get();
+        if (sessions != null && sessions.containsKey(sessionFactoryName)) {
+            throw new RuntimeMybatisException(sessionFactoryName, new IllegalStateException("Cannot call " + method +
+                " on mybatis '" + sessionFactoryName + "' from within a withSqlSession call on the same session factory"));
+        }
+    }
+
+    @Nonnull
+    private SqlSessionSettings getSettings(@Nonnull String sessionFactoryName) {
+        SqlSessionSettings sessionSettings = settings.get(sessionFactoryName);
+        if (sessionSettings == null) {
+            sessionSettings = settings.computeIfAbsent(sessionFactoryName, name -> SqlSessionSettings.of(mybatisFactory.getConfigurationFor(name)));
+        }
+        return sessionSettings;
     }
 
     @Nonnull
-    private SqlSession getSqlSession(@Nonnull String sessionFactoryName) {
+    private ThreadBoundSqlSession getThreadBoundSqlSession(@Nonnull String sessionFactoryName, @Nonnull SqlSession session) {
+        ThreadBoundSqlSession threadBoundSession = threadBoundSessions.get(sessionFactoryName);
+        if (threadBoundSession == null) {
+            threadBoundSession = threadBoundSessions.computeIfAbsent(sessionFactoryName, name -> new ThreadBoundSqlSession(session.getConfiguration()));
+        }
+        return threadBoundSession;
+    }
+
+    @Nonnull
+    private SqlSession getSqlSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory, @Nonnull SqlSessionSettings sessionSettings, @Nonnull ExecutorType executorType) {
+        if (sessionSettings.isTransactional()) {
+            return openTransactionalSession(sessionFactoryName, sqlSessionFactory, executorType, sessionSettings.getIsolationLevel());
+        }
+        return openSession(sessionFactoryName, sqlSessionFactory, executorType);
+    }
+
+    @Nonnull
+    private SqlSessionFactory getSqlSessionFactory(@Nonnull String sessionFactoryName) {
         SqlSessionFactory sqlSessionFactory = mybatisStorage.get(sessionFactoryName);
         if (sqlSessionFactory == null) {
-            sqlSessionFactory = mybatisFactory.create(sessionFactoryName);
-            mybatisStorage.set(sessionFactoryName, sqlSessionFactory);
+            sqlSessionFactory = mybatisStorage.computeIfAbsent(sessionFactoryName, mybatisFactory::create);
         }
-        return openSession(sessionFactoryName, sqlSessionFactory);
+        return sqlSessionFactory;
     }
 
     @Nonnull
     protected SqlSession openSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory) {
-        return sqlSessionFactory.openSession(true);
+        return openSession(sessionFactoryName, sqlSessionFactory, sqlSessionFactory.getConfiguration().getDefaultExecutorType());
+    }
+
+    @Nonnull
+    protected SqlSession openSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory, @Nonnull ExecutorType executorType) {
+        return sqlSessionFactory.openSession(executorType, true);
+    }
+
+    @Nonnull
+    protected SqlSession openTransactionalSession(@Nonnull String sessionFactoryName, @Nonnull SqlSessionFactory sqlSessionFactory, @Nonnull ExecutorType executorType, @Nullable TransactionIsolationLevel level) {
+        return level != null ? sqlSessionFactory.openSession(executorType, level) : sqlSessionFactory.openSession(executorType, false);
+    }
+
+    private <R> void complete(@Nonnull CompletableFuture<R> future, @Nullable R result, @Nullable Throwable failure, boolean insideUI) {
+        if (insideUI) {
+            uiThreadManager.executeInsideUIAsync(() -> complete(future, result, failure, false));
+        } else if (failure != null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(result);
+        }
+    }
+
+    private static void rollback(@Nonnull SqlSession session, @Nonnull Exception cause) {
+        try {
+            session.rollback();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static void resetReadOnly(@Nonnull String sessionFactoryName, @Nonnull SqlSession session) {
+        try {
+            session.getConnection().setReadOnly(false);
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Could not reset read-only flag on mybatis '" + sessionFactoryName + "'", e);
+        }
     }
 }
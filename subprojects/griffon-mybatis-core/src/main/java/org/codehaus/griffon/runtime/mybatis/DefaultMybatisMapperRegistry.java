@@ -0,0 +1,203 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.ApplicationClassLoader;
+import griffon.plugins.mybatis.MybatisMapper;
+import griffon.plugins.mybatis.MybatisMapperRegistry;
+import org.kordamp.jipsy.util.TypeLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static griffon.core.GriffonExceptionHandler.sanitize;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Reads mapper classes from a precomputed index ({@value #INDEX_RESOURCE}) when available, otherwise scans
+ * {@code META-INF/types/} for {@code MybatisMapper} providers. An index only covers the classpath entry that
+ * contains it; entries without an index are still scanned.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class DefaultMybatisMapperRegistry implements MybatisMapperRegistry {
+    public static final String INDEX_RESOURCE = "META-INF/griffon/mybatis-mappers.idx";
+
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultMybatisMapperRegistry.class);
+    private static final String TYPES_RESOURCE = "META-INF/types/" + MybatisMapper.class.getName();
+
+    private final ApplicationClassLoader applicationClassLoader;
+    private volatile Set<Class<?>> mapperClasses;
+
+    @Inject
+    public DefaultMybatisMapperRegistry(@Nonnull ApplicationClassLoader applicationClassLoader) {
+        this.applicationClassLoader = requireNonNull(applicationClassLoader, "Argument 'applicationClassLoader' must not be null");
+    }
+
+    @Nonnull
+    @Override
+    public Set<Class<?>> getMapperClasses() {
+        Set<Class<?>> classes = mapperClasses;
+        if (classes == null) {
+            synchronized (this) {
+                classes = mapperClasses;
+                if (classes == null) {
+                    classes = unmodifiableSet(resolveMapperClasses(applicationClassLoader.get()));
+                    mapperClasses = classes;
+                }
+            }
+        }
+        return classes;
+    }
+
+    @Nonnull
+    protected Set<Class<?>> resolveMapperClasses(@Nonnull ClassLoader classLoader) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        Set<String> indexedEntries = new LinkedHashSet<>();
+        for (URL url : getResources(classLoader, INDEX_RESOURCE)) {
+            LOG.debug("Reading mybatis mapper index from {}", url);
+            readMapperClasses(classLoader, url, classes);
+            indexedEntries.add(getClasspathEntry(url, INDEX_RESOURCE));
+        }
+
+        if (indexedEntries.isEmpty()) {
+            return scanMapperClasses(classLoader);
+        }
+
+        // libraries packaged without an index must not be left out
+        for (URL url : getResources(classLoader, TYPES_RESOURCE)) {
+            if (!indexedEntries.contains(getClasspathEntry(url, TYPES_RESOURCE))) {
+                LOG.debug("Scanning {} for mybatis mappers as its classpath entry has no index", url);
+                readMapperClasses(classLoader, url, classes);
+            }
+        }
+        return classes;
+    }
+
+    @Nonnull
+    private static List<URL> getResources(@Nonnull ClassLoader classLoader, @Nonnull String resource) {
+        try {
+            return Collections.list(classLoader.getResources(resource));
+        } catch (IOException e) {
+            LOG.warn("Could not read " + resource, sanitize(e));
+            return Collections.emptyList();
+        }
+    }
+
+    @Nonnull
+    private static String getClasspathEntry(@Nonnull URL url, @Nonnull String resource) {
+        String location = url.toExternalForm();
+        return location.endsWith(resource) ? location.substring(0, location.length() - resource.length()) : location;
+    }
+
+    private void readMapperClasses(@Nonnull ClassLoader classLoader, @Nonnull URL url, @Nonnull Set<Class<?>> classes) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    // indexes are generated from the application's own classes
+                    register(classLoader.loadClass(line), classes);
+                } catch (ClassNotFoundException e) {
+                    LOG.warn("Could not load mybatis mapper " + line + " listed in " + url, sanitize(e));
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not read " + url, sanitize(e));
+        }
+    }
+
+    @Nonnull
+    protected Set<Class<?>> scanMapperClasses(@Nonnull ClassLoader classLoader) {
+        Set<Class<?>> classes = new LinkedHashSet<>();
+        TypeLoader.load(classLoader, "META-INF/types/", MybatisMapper.class, new TypeLoader.LineProcessor() {
+            @Override
+            public void process(@Nonnull ClassLoader classLoader, @Nonnull Class<?> type, @Nonnull String line) {
+                try {
+                    register(loadClass(line.trim(), classLoader), classes);
+                } catch (Exception e) {
+                    if (LOG.isWarnEnabled()) {
+                        LOG.warn("Could not load " + type.getName() + " with " + line, sanitize(e));
+                    }
+                }
+            }
+        });
+        return classes;
+    }
+
+    private static void register(@Nonnull Class<?> mapperClass, @Nonnull Set<Class<?>> classes) {
+        LOG.debug("Registering {} as mybatis mapper class", mapperClass.getName());
+        classes.add(mapperClass);
+    }
+
+    protected Class<?> loadClass(@Nonnull String className, @Nonnull ClassLoader classLoader) throws ClassNotFoundException {
+        ClassNotFoundException cnfe;
+
+        ClassLoader cl = DefaultMybatisMapperRegistry.class.getClassLoader();
+        try {
+            return cl.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            cnfe = e;
+        }
+
+        cl = classLoader;
+        try {
+            return cl.loadClass(className);
+        } catch (ClassNotFoundException e) {
+            cnfe = e;
+        }
+
+        throw cnfe;
+    }
+
+    /**
+     * Writes an index suitable for {@value #INDEX_RESOURCE}.
+     *
+     * @param mapperClassNames the names of the mapper classes to be indexed
+     * @param writer           the destination of the index
+     *
+     * @throws IOException if the index could not be written
+     */
+    public static void writeIndex(@Nonnull Collection<String> mapperClassNames, @Nonnull Writer writer) throws IOException {
+        requireNonNull(mapperClassNames, "Argument 'mapperClassNames' must not be null");
+        requireNonNull(writer, "Argument 'writer' must not be null");
+        for (String mapperClassName : mapperClassNames) {
+            writer.write(mapperClassName);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
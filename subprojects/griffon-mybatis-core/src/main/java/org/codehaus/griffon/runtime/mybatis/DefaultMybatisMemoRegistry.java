@@ -0,0 +1,224 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps one bounded memo per scope. Every namespace carries a version that is bumped on writes, a result computed
+ * while the version changed is handed back to the caller but never memoized. Memos exist from {@code create} to
+ * {@code destroy} only, a scope used after being destroyed does not get its memo back.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class DefaultMybatisMemoRegistry implements MybatisMemoRegistry {
+    public static final String KEY_MEMO_SIZE = "memo_size";
+
+    private static final int DEFAULT_MEMO_SIZE = 256;
+    private static final String ERROR_SCOPE_BLANK = "Argument 'scope' must not be blank";
+    private static final String ERROR_NAMESPACE_NULL = "Argument 'namespace' must not be null";
+
+    private final int maxEntries;
+    private final Map<String, Memo> memos = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final ThreadLocal<Memo> currentMemo = new ThreadLocal<>();
+
+    @Inject
+    public DefaultMybatisMemoRegistry(@Nonnull @Named("mybatis") griffon.core.Configuration configuration) {
+        this(requireNonNull(configuration, "Argument 'configuration' must not be null").getAsInt(KEY_MEMO_SIZE, DEFAULT_MEMO_SIZE));
+    }
+
+    public DefaultMybatisMemoRegistry(int maxEntries) {
+        this.maxEntries = Math.max(0, maxEntries);
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    @Override
+    public void create(@Nonnull String scope) {
+        requireNonBlank(scope, ERROR_SCOPE_BLANK);
+        if (isEnabled()) {
+            memos.computeIfAbsent(scope, s -> new Memo(maxEntries));
+        }
+    }
+
+    @Nullable
+    @Override
+    public <R> R withScope(@Nonnull String scope, @Nonnull Supplier<R> callback) {
+        requireNonBlank(scope, ERROR_SCOPE_BLANK);
+        requireNonNull(callback, "Argument 'callback' must not be null");
+        Memo memo = memos.get(scope);
+        if (memo == null) {
+            return callback.get();
+        }
+
+        Memo previous = currentMemo.get();
+        currentMemo.set(memo);
+        try {
+            return callback.get();
+        } finally {
+            if (previous != null) {
+                currentMemo.set(previous);
+            } else {
+                currentMemo.remove();
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T memoize(@Nonnull String namespace, @Nonnull Object key, @Nonnull Query<T> query) throws SQLException {
+        requireNonNull(namespace, ERROR_NAMESPACE_NULL);
+        requireNonNull(key, "Argument 'key' must not be null");
+        requireNonNull(query, "Argument 'query' must not be null");
+
+        Memo memo = currentMemo.get();
+        if (memo == null) {
+            return query.execute();
+        }
+
+        Object value = memo.get(key);
+        if (value != null) {
+            return (T) copyOf(value);
+        }
+
+        AtomicLong version = versions.computeIfAbsent(namespace, n -> new AtomicLong());
+        long expected = version.get();
+        T result = query.execute();
+        if (result != null) {
+            memo.put(namespace, key, copyOf(result), version, expected);
+        }
+        return result;
+    }
+
+    @Nonnull
+    private static Object copyOf(@Nonnull Object value) {
+        // callers may modify the list they get back, never the one that is memoized
+        return value instanceof List ? new ArrayList<>((List<?>) value) : value;
+    }
+
+    @Override
+    public void invalidate(@Nonnull String namespace) {
+        requireNonNull(namespace, ERROR_NAMESPACE_NULL);
+        AtomicLong version = versions.get(namespace);
+        if (version == null) {
+            // nothing has been memoized for this namespace yet
+            return;
+        }
+        version.incrementAndGet();
+        for (Memo memo : memos.values()) {
+            memo.invalidate(namespace);
+        }
+    }
+
+    @Override
+    public void destroy(@Nonnull String scope) {
+        requireNonBlank(scope, ERROR_SCOPE_BLANK);
+        memos.remove(scope);
+    }
+
+    @Nonnull
+    @Override
+    public Set<String> getScopes() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(memos.keySet()));
+    }
+
+    @Override
+    public int size(@Nonnull String scope) {
+        requireNonBlank(scope, ERROR_SCOPE_BLANK);
+        Memo memo = memos.get(scope);
+        return memo != null ? memo.size() : 0;
+    }
+
+    private static final class Memo {
+        private final Map<Object, MemoEntry> entries;
+
+        private Memo(int maxEntries) {
+            this.entries = new LinkedHashMap<Object, MemoEntry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, MemoEntry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Nullable
+        private synchronized Object get(@Nonnull Object key) {
+            MemoEntry entry = entries.get(key);
+            return entry != null ? entry.value : null;
+        }
+
+        private synchronized void put(@Nonnull String namespace, @Nonnull Object key, @Nonnull Object value, @Nonnull AtomicLong version, long expected) {
+            // checked while holding the lock, an invalidation either sees this entry or prevents it from being added
+            if (version.get() == expected) {
+                entries.put(key, new MemoEntry(namespace, value));
+            }
+        }
+
+        private synchronized void invalidate(@Nonnull String namespace) {
+            for (Iterator<MemoEntry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (namespace.equals(it.next().namespace)) {
+                    it.remove();
+                }
+            }
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    private static final class MemoEntry {
+        private final String namespace;
+        private final Object value;
+
+        private MemoEntry(@Nonnull String namespace, @Nonnull Object value) {
+            this.namespace = namespace;
+            this.value = value;
+        }
+    }
+}
@@ -17,12 +17,45 @@
  */
 package org.codehaus.griffon.runtime.mybatis;
 
+import griffon.annotations.core.Nonnull;
 import griffon.plugins.mybatis.MybatisStorage;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.codehaus.griffon.runtime.core.storage.DefaultObjectStorage;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
 /**
+ * Lookups are lock-free; creation of a missing instance is guarded by a lock dedicated to its name, thus
+ * independent session factories may still be created in parallel.
+ *
  * @author Andres Almiray
  */
 public class DefaultMybatisStorage extends DefaultObjectStorage<SqlSessionFactory> implements MybatisStorage {
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    @Nonnull
+    @Override
+    public SqlSessionFactory computeIfAbsent(@Nonnull String sessionFactoryName, @Nonnull Function<String, SqlSessionFactory> factory) {
+        requireNonBlank(sessionFactoryName, "Argument 'sessionFactoryName' must not be blank");
+        requireNonNull(factory, "Argument 'factory' must not be null");
+
+        SqlSessionFactory sqlSessionFactory = get(sessionFactoryName);
+        if (sqlSessionFactory != null) {
+            return sqlSessionFactory;
+        }
+
+        synchronized (locks.computeIfAbsent(sessionFactoryName, k -> new Object())) {
+            sqlSessionFactory = get(sessionFactoryName);
+            if (sqlSessionFactory == null) {
+                sqlSessionFactory = requireNonNull(factory.apply(sessionFactoryName), "Argument 'factory' must not return null");
+                set(sessionFactoryName, sqlSessionFactory);
+            }
+            return sqlSessionFactory;
+        }
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.plugins.mybatis.MybatisCallback;
+import griffon.plugins.mybatis.MybatisExecutorProvider;
+import griffon.plugins.mybatis.MybatisHandler;
+import griffon.plugins.mybatis.ReactiveMybatisHandler;
+import org.apache.ibatis.cursor.Cursor;
+import org.reactivestreams.Publisher;
+
+import javax.inject.Inject;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class DefaultReactiveMybatisHandler implements ReactiveMybatisHandler {
+    private static final String ERROR_SQLSESSION_BLANK = "Argument 'sessionFactoryName' must not be blank";
+    private static final String ERROR_CALLBACK_NULL = "Argument 'callback' must not be null";
+
+    private final MybatisHandler mybatisHandler;
+    private final MybatisExecutorProvider mybatisExecutorProvider;
+
+    @Inject
+    public DefaultReactiveMybatisHandler(@Nonnull MybatisHandler mybatisHandler, @Nonnull MybatisExecutorProvider mybatisExecutorProvider) {
+        this.mybatisHandler = requireNonNull(mybatisHandler, "Argument 'mybatisHandler' must not be null");
+        this.mybatisExecutorProvider = requireNonNull(mybatisExecutorProvider, "Argument 'mybatisExecutorProvider' must not be null");
+    }
+
+    @Nonnull
+    @Override
+    public <T> Publisher<T> publish(@Nonnull MybatisCallback<Cursor<T>> callback) {
+        return publish(DefaultMybatisFactory.KEY_DEFAULT, callback);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Publisher<T> publish(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<Cursor<T>> callback) {
+        return publish(sessionFactoryName, 0, callback);
+    }
+
+    @Nonnull
+    @Override
+    public <T> Publisher<T> publish(@Nonnull String sessionFactoryName, int fetchSize, @Nonnull MybatisCallback<Cursor<T>> callback) {
+        requireNonBlank(sessionFactoryName, ERROR_SQLSESSION_BLANK);
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        return subscriber -> {
+            requireNonNull(subscriber, "Argument 'subscriber' must not be null");
+            CursorSubscription<T> subscription = new CursorSubscription<>(subscriber,
+                () -> fetchSize > 0 ? mybatisHandler.stream(sessionFactoryName, fetchSize, callback) : mybatisHandler.stream(sessionFactoryName, callback),
+                mybatisExecutorProvider.getExecutorService(sessionFactoryName));
+            subscriber.onSubscribe(subscription);
+        };
+    }
+}
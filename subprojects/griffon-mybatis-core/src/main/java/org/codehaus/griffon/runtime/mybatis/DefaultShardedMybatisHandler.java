@@ -0,0 +1,171 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.mybatis.MybatisCallback;
+import griffon.plugins.mybatis.MybatisExecutorProvider;
+import griffon.plugins.mybatis.MybatisHandler;
+import griffon.plugins.mybatis.MybatisShardResolver;
+import griffon.plugins.mybatis.ShardedMybatisHandler;
+import griffon.plugins.mybatis.exceptions.RuntimeMybatisException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collector;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class DefaultShardedMybatisHandler implements ShardedMybatisHandler {
+    private static final Logger LOG = LoggerFactory.getLogger(DefaultShardedMybatisHandler.class);
+    private static final String ERROR_CALLBACK_NULL = "Argument 'callback' must not be null";
+
+    private final MybatisHandler mybatisHandler;
+    private final MybatisShardResolver mybatisShardResolver;
+    private final List<String> shardNames;
+
+    @Inject
+    private MybatisExecutorProvider mybatisExecutorProvider;
+
+    @Inject
+    public DefaultShardedMybatisHandler(@Nonnull @Named("mybatis") griffon.core.Configuration configuration, @Nonnull MybatisHandler mybatisHandler, @Nonnull MybatisShardResolver mybatisShardResolver) {
+        requireNonNull(configuration, "Argument 'configuration' must not be null");
+        this.mybatisHandler = requireNonNull(mybatisHandler, "Argument 'mybatisHandler' must not be null");
+        this.mybatisShardResolver = requireNonNull(mybatisShardResolver, "Argument 'mybatisShardResolver' must not be null");
+        this.shardNames = Collections.unmodifiableList(DefaultMybatisFactory.getShardNames(configuration));
+    }
+
+    @Nonnull
+    @Override
+    public List<String> getShardNames() {
+        return shardNames;
+    }
+
+    @Nonnull
+    @Override
+    public String resolveShard(@Nonnull Object shardKey) {
+        requireNonNull(shardKey, "Argument 'shardKey' must not be null");
+        if (shardNames.isEmpty()) {
+            throw new IllegalStateException("No shards have been configured");
+        }
+        return mybatisShardResolver.resolve(shardKey, shardNames);
+    }
+
+    @Nullable
+    @Override
+    public <R> R withShard(@Nonnull Object shardKey, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        return mybatisHandler.withSqlSession(resolveShard(shardKey), callback);
+    }
+
+    @Nonnull
+    @Override
+    public <R> List<R> withEachShard(@Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+        requireNonNull(callback, ERROR_CALLBACK_NULL);
+        int size = shardNames.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        // every shard but the last one runs on its own executor, the last one runs on the calling thread
+        List<CompletableFuture<R>> futures = new ArrayList<>(size - 1);
+        for (String shardName : shardNames.subList(0, size - 1)) {
+            futures.add(submit(shardName, callback));
+        }
+
+        List<R> results = new ArrayList<>(size);
+        RuntimeMybatisException failure = null;
+        try {
+            R last = mybatisHandler.withSqlSession(shardNames.get(size - 1), callback);
+            failure = gather(shardNames, futures, results);
+            results.add(last);
+        } catch (RuntimeMybatisException e) {
+            failure = e;
+            RuntimeMybatisException other = gather(shardNames, futures, results);
+            if (other != null) {
+                failure.addSuppressed(other);
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    @Nonnull
+    @Override
+    public <R, A, T> T withEachShard(@Nonnull MybatisCallback<R> callback, @Nonnull Collector<? super R, A, T> collector) throws RuntimeMybatisException {
+        requireNonNull(collector, "Argument 'collector' must not be null");
+        A container = collector.supplier().get();
+        for (R result : withEachShard(callback)) {
+            collector.accumulator().accept(container, result);
+        }
+        return collector.finisher().apply(container);
+    }
+
+    @Nonnull
+    private <R> CompletableFuture<R> submit(@Nonnull String shardName, @Nonnull MybatisCallback<R> callback) {
+        try {
+            return CompletableFuture.supplyAsync(() -> mybatisHandler.withSqlSession(shardName, callback),
+                mybatisExecutorProvider.getExecutorService(shardName));
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Async executor for mybatis '{}' is saturated", shardName);
+            CompletableFuture<R> future = new CompletableFuture<>();
+            future.completeExceptionally(new RuntimeMybatisException(shardName, e));
+            return future;
+        }
+    }
+
+    /**
+     * Waits for every future, adding their results in order.
+     *
+     * @return the first failure, with any other failures as suppressed exceptions
+     */
+    @Nullable
+    private static <R> RuntimeMybatisException gather(@Nonnull List<String> shardNames, @Nonnull List<CompletableFuture<R>> futures, @Nonnull List<R> results) {
+        RuntimeMybatisException failure = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).join());
+            } catch (CompletionException e) {
+                RuntimeMybatisException cause = e.getCause() instanceof RuntimeMybatisException ?
+                    (RuntimeMybatisException) e.getCause() : new RuntimeMybatisException(shardNames.get(i), e);
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Overrides the fetch size of statements prepared by the calling thread while a fetch size is bound to it. Statement
+ * handlers are left untouched otherwise.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class FetchSizeInterceptor implements Interceptor {
+    private static final ThreadLocal<Integer> FETCH_SIZE = new ThreadLocal<>();
+
+    /**
+     * Binds a fetch size to the calling thread.
+     *
+     * @return the fetch size previously bound, to be restored with {@link #restore(Integer)}
+     */
+    @Nullable
+    public static Integer bind(int fetchSize) {
+        Integer previous = FETCH_SIZE.get();
+        FETCH_SIZE.set(fetchSize);
+        return previous;
+    }
+
+    public static void restore(@Nullable Integer previous) {
+        if (previous != null) {
+            FETCH_SIZE.set(previous);
+        } else {
+            FETCH_SIZE.remove();
+        }
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof StatementHandler) {
+            Integer fetchSize = FETCH_SIZE.get();
+            if (fetchSize != null) {
+                return new FetchSizeStatementHandler((StatementHandler) target, fetchSize);
+            }
+        }
+        return target;
+    }
+
+    private static class FetchSizeStatementHandler implements StatementHandler {
+        private final StatementHandler delegate;
+        private final int fetchSize;
+
+        private FetchSizeStatementHandler(StatementHandler delegate, int fetchSize) {
+            this.delegate = delegate;
+            this.fetchSize = fetchSize;
+        }
+
+        @Override
+        public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
+            Statement statement = delegate.prepare(connection, transactionTimeout);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }
+
+        @Override
+        public void parameterize(Statement statement) throws SQLException {
+            delegate.parameterize(statement);
+        }
+
+        @Override
+        public void batch(Statement statement) throws SQLException {
+            delegate.batch(statement);
+        }
+
+        @Override
+        public int update(Statement statement) throws SQLException {
+            return delegate.update(statement);
+        }
+
+        @Override
+        public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+            return delegate.query(statement, resultHandler);
+        }
+
+        @Override
+        public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+            return delegate.queryCursor(statement);
+        }
+
+        @Override
+        public BoundSql getBoundSql() {
+            return delegate.getBoundSql();
+        }
+
+        @Override
+        public ParameterHandler getParameterHandler() {
+            return delegate.getParameterHandler();
+        }
+    }
+}
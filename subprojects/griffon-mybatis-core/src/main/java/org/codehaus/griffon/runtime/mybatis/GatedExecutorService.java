@@ -0,0 +1,119 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Limits the number of tasks that may run at the same time. Tasks wait for a permit inside the thread
+ * that runs them, which makes this decorator a good fit for executors that create cheap threads.
+ * <p>
+ * Admission is bounded as well: up to {@code maxConcurrency} running tasks plus {@code queueSize} waiting ones are
+ * accepted, further tasks are rejected when submitted, just like a thread pool with a full queue would.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class GatedExecutorService extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final Semaphore admissions;
+
+    public GatedExecutorService(@Nonnull ExecutorService delegate, int maxConcurrency, int queueSize) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Argument 'maxConcurrency' must be greater than zero");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Argument 'queueSize' must not be negative");
+        }
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.admissions = new Semaphore(maxConcurrency + queueSize);
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    /**
+     * @return the number of tasks that may still be submitted before new ones are rejected.
+     */
+    public int getAvailableAdmissions() {
+        return admissions.availablePermits();
+    }
+
+    @Override
+    public void execute(@Nonnull Runnable command) {
+        requireNonNull(command, "Argument 'command' must not be null");
+        if (!admissions.tryAcquire()) {
+            throw new RejectedExecutionException("Task " + command + " rejected, " + permits.availablePermits() + " permits available");
+        }
+        try {
+            delegate.execute(() -> {
+                try {
+                    permits.acquireUninterruptibly();
+                    try {
+                        command.run();
+                    } finally {
+                        permits.release();
+                    }
+                } finally {
+                    admissions.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admissions.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Nonnull
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.binding.MapperProxyFactory;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@code Configuration} that parses a mapper the first time it's requested, or the first time a statement or
+ * result map in its namespace is looked up.
+ * <p>
+ * Configuration keeps parsed elements in plain hash maps, thus parsing and lookups of elements not yet seen are
+ * serialized; elements and mappers already seen are served from concurrent caches without locking, even while other
+ * mappers remain pending. Mapper proxies are created by factories kept in one of those caches, as the
+ * {@code MapperRegistry} of the superclass may only be read while holding the lock. Should a mapper refer to elements of a namespace not yet parsed then all remaining mappers
+ * are parsed.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class LazyConfiguration extends Configuration {
+    private final Object lock = new Object();
+    private final Map<String, Class<?>> pendingMappers = new LinkedHashMap<>();
+    private final Map<Class<?>, Boolean> knownMappers = new ConcurrentHashMap<>();
+    private final Map<Class<?>, MapperProxyFactory<?>> mapperFactories = new ConcurrentHashMap<>();
+    private final Map<String, MappedStatement> statements = new ConcurrentHashMap<>();
+    private final Map<String, ResultMap> resultMaps = new ConcurrentHashMap<>();
+    private volatile boolean pending;
+
+    public LazyConfiguration(@Nonnull Environment environment, @Nonnull Collection<Class<?>> mapperClasses) {
+        super(environment);
+        requireNonNull(mapperClasses, "Argument 'mapperClasses' must not be null");
+        for (Class<?> mapperClass : mapperClasses) {
+            pendingMappers.put(mapperClass.getName(), mapperClass);
+            knownMappers.put(mapperClass, Boolean.TRUE);
+        }
+        pending = !pendingMappers.isEmpty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getMapper(Class<T> type, SqlSession sqlSession) {
+        MapperProxyFactory<T> mapperFactory = (MapperProxyFactory<T>) mapperFactories.get(type);
+        if (mapperFactory == null) {
+            // only the first request for each mapper has to wait
+            synchronized (lock) {
+                load(type.getName());
+                if (!super.hasMapper(type)) {
+                    // fails with the usual BindingException
+                    return super.getMapper(type, sqlSession);
+                }
+                mapperFactory = (MapperProxyFactory<T>) mapperFactories.computeIfAbsent(type, MapperProxyFactory::new);
+            }
+        }
+        return mapperFactory.newInstance(sqlSession);
+    }
+
+    @Override
+    public boolean hasMapper(Class<?> type) {
+        return knownMappers.containsKey(type) || super.hasMapper(type);
+    }
+
+    @Override
+    public MappedStatement getMappedStatement(String id, boolean validateIncompleteStatements) {
+        MappedStatement mappedStatement = statements.get(id);
+        if (mappedStatement == null) {
+            synchronized (lock) {
+                loadNamespaceOf(id);
+                mappedStatement = super.getMappedStatement(id, validateIncompleteStatements);
+            }
+            statements.put(id, mappedStatement);
+        }
+        return mappedStatement;
+    }
+
+    @Override
+    public boolean hasStatement(String statementName, boolean validateIncompleteStatements) {
+        if (statements.containsKey(statementName)) {
+            return true;
+        }
+        synchronized (lock) {
+            loadNamespaceOf(statementName);
+            return super.hasStatement(statementName, validateIncompleteStatements);
+        }
+    }
+
+    @Override
+    public Collection<String> getMappedStatementNames() {
+        synchronized (lock) {
+            loadAll();
+            return super.getMappedStatementNames();
+        }
+    }
+
+    @Override
+    public Collection<MappedStatement> getMappedStatements() {
+        synchronized (lock) {
+            loadAll();
+            return super.getMappedStatements();
+        }
+    }
+
+    @Override
+    public ResultMap getResultMap(String id) {
+        ResultMap resultMap = resultMaps.get(id);
+        if (resultMap == null) {
+            synchronized (lock) {
+                loadNamespaceOf(id);
+                resultMap = super.getResultMap(id);
+            }
+            resultMaps.put(id, resultMap);
+        }
+        return resultMap;
+    }
+
+    @Override
+    public boolean hasResultMap(String id) {
+        if (resultMaps.containsKey(id)) {
+            return true;
+        }
+        synchronized (lock) {
+            loadNamespaceOf(id);
+            return super.hasResultMap(id);
+        }
+    }
+
+    @Override
+    public Collection<String> getResultMapNames() {
+        synchronized (lock) {
+            loadAll();
+            return super.getResultMapNames();
+        }
+    }
+
+    @Override
+    public Collection<ResultMap> getResultMaps() {
+        synchronized (lock) {
+            loadAll();
+            return super.getResultMaps();
+        }
+    }
+
+    private void loadNamespaceOf(@Nonnull String id) {
+        if (!pending) {
+            return;
+        }
+        if (id.indexOf('.') < 0) {
+            // short names may match elements from any namespace
+            loadAll();
+            return;
+        }
+
+        for (String namespace : new ArrayList<>(pendingMappers.keySet())) {
+            if (id.startsWith(namespace) && id.length() > namespace.length() && id.charAt(namespace.length()) == '.') {
+                load(namespace);
+            }
+        }
+    }
+
+    private void load(@Nonnull String namespace) {
+        Class<?> mapperClass = pendingMappers.remove(namespace);
+        if (mapperClass == null) {
+            return;
+        }
+        addMapper(mapperClass);
+        pending = !pendingMappers.isEmpty();
+
+        if (!getIncompleteStatements().isEmpty() || !getIncompleteResultMaps().isEmpty() ||
+            !getIncompleteCacheRefs().isEmpty() || !getIncompleteMethods().isEmpty()) {
+            // the mapper depends on elements defined elsewhere
+            loadAll();
+        }
+    }
+
+    private void loadAll() {
+        // parsing a mapper may load others, never hold an iterator while parsing
+        while (!pendingMappers.isEmpty()) {
+            load(pendingMappers.keySet().iterator().next());
+        }
+    }
+}
@@ -18,18 +18,49 @@
 package org.codehaus.griffon.runtime.mybatis;
 
 import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Supplier;
+
 /**
+ * Forwards calls to its own copy of the delegate rather than through {@code SqlSessionDecorator}, thus every call
+ * site in this class only ever sees the session created by MyBatis and remains monomorphic.
+ *
  * @author Andres Almiray
  */
-public class LinkedSqlSession extends SqlSessionDecorator {
+public class LinkedSqlSession extends SqlSessionDecorator implements TrackedSession {
+    private static final AtomicIntegerFieldUpdater<LinkedSqlSession> CLOSED = AtomicIntegerFieldUpdater.newUpdater(LinkedSqlSession.class, "closed");
+    private static final AtomicIntegerFieldUpdater<LinkedSqlSession> REPORTED = AtomicIntegerFieldUpdater.newUpdater(LinkedSqlSession.class, "reported");
+
+    private final SqlSession session;
     private RecordingSqlSessionFactory sqlSessionFactory;
+    private final boolean recordStatements;
+    private final long openTime = System.nanoTime();
+    private final Throwable openedBy;
+    private volatile int closed;
+    private volatile int reported;
 
     public LinkedSqlSession(@Nonnull SqlSession delegate, @Nonnull RecordingSqlSessionFactory sqlSessionFactory) {
+        this(delegate, sqlSessionFactory, null);
+    }
+
+    public LinkedSqlSession(@Nonnull SqlSession delegate, @Nonnull RecordingSqlSessionFactory sqlSessionFactory, @Nullable Throwable openedBy) {
         super(delegate);
+        this.session = delegate;
         this.sqlSessionFactory = sqlSessionFactory;
+        this.recordStatements = sqlSessionFactory.isStatementMetricsEnabled();
+        this.openedBy = openedBy;
     }
 
     @Nonnull
@@ -37,9 +68,260 @@ public class LinkedSqlSession extends SqlSessionDecorator {
         return sqlSessionFactory;
     }
 
+    @Override
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Nullable
+    @Override
+    public Throwable getOpenedBy() {
+        return openedBy;
+    }
+
+    public boolean isClosed() {
+        return closed != 0;
+    }
+
+    @Override
+    public boolean markReported() {
+        return REPORTED.compareAndSet(this, 0, 1);
+    }
+
+    @Override
+    public <T> T selectOne(String statement) {
+        if (!recordStatements) {
+            return session.selectOne(statement);
+        }
+        return timed(statement, () -> session.selectOne(statement));
+    }
+
+    @Override
+    public <T> T selectOne(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.selectOne(statement, parameter);
+        }
+        return timed(statement, () -> session.selectOne(statement, parameter));
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement) {
+        if (!recordStatements) {
+            return session.selectList(statement);
+        }
+        return timed(statement, () -> session.selectList(statement));
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.selectList(statement, parameter);
+        }
+        return timed(statement, () -> session.selectList(statement, parameter));
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
+        if (!recordStatements) {
+            return session.selectList(statement, parameter, rowBounds);
+        }
+        return timed(statement, () -> session.selectList(statement, parameter, rowBounds));
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, String mapKey) {
+        if (!recordStatements) {
+            return session.selectMap(statement, mapKey);
+        }
+        return timed(statement, () -> session.selectMap(statement, mapKey));
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey) {
+        if (!recordStatements) {
+            return session.selectMap(statement, parameter, mapKey);
+        }
+        return timed(statement, () -> session.selectMap(statement, parameter, mapKey));
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds) {
+        if (!recordStatements) {
+            return session.selectMap(statement, parameter, mapKey, rowBounds);
+        }
+        return timed(statement, () -> session.selectMap(statement, parameter, mapKey, rowBounds));
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement) {
+        if (!recordStatements) {
+            return session.selectCursor(statement);
+        }
+        return timed(statement, () -> session.selectCursor(statement));
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.selectCursor(statement, parameter);
+        }
+        return timed(statement, () -> session.selectCursor(statement, parameter));
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+        if (!recordStatements) {
+            return session.selectCursor(statement, parameter, rowBounds);
+        }
+        return timed(statement, () -> session.selectCursor(statement, parameter, rowBounds));
+    }
+
+    @Override
+    public void select(String statement, Object parameter, ResultHandler handler) {
+        if (!recordStatements) {
+            session.select(statement, parameter, handler);
+            return;
+        }
+        timed(statement, () -> {
+            session.select(statement, parameter, handler);
+            return null;
+        });
+    }
+
+    @Override
+    public void select(String statement, ResultHandler handler) {
+        if (!recordStatements) {
+            session.select(statement, handler);
+            return;
+        }
+        timed(statement, () -> {
+            session.select(statement, handler);
+            return null;
+        });
+    }
+
+    @Override
+    public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
+        if (!recordStatements) {
+            session.select(statement, parameter, rowBounds, handler);
+            return;
+        }
+        timed(statement, () -> {
+            session.select(statement, parameter, rowBounds, handler);
+            return null;
+        });
+    }
+
+    @Override
+    public int insert(String statement) {
+        if (!recordStatements) {
+            return session.insert(statement);
+        }
+        return timed(statement, () -> session.insert(statement));
+    }
+
+    @Override
+    public int insert(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.insert(statement, parameter);
+        }
+        return timed(statement, () -> session.insert(statement, parameter));
+    }
+
+    @Override
+    public int update(String statement) {
+        if (!recordStatements) {
+            return session.update(statement);
+        }
+        return timed(statement, () -> session.update(statement));
+    }
+
+    @Override
+    public int update(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.update(statement, parameter);
+        }
+        return timed(statement, () -> session.update(statement, parameter));
+    }
+
+    @Override
+    public int delete(String statement) {
+        if (!recordStatements) {
+            return session.delete(statement);
+        }
+        return timed(statement, () -> session.delete(statement));
+    }
+
+    @Override
+    public int delete(String statement, Object parameter) {
+        if (!recordStatements) {
+            return session.delete(statement, parameter);
+        }
+        return timed(statement, () -> session.delete(statement, parameter));
+    }
+
     @Override
     public void close() {
-        super.close();
-        sqlSessionFactory.decreaseSessionCount();
+        // the session count must not drift when close() is called more than once
+        if (!CLOSED.compareAndSet(this, 0, 1)) {
+            return;
+        }
+        try {
+            session.close();
+        } finally {
+            sqlSessionFactory.sessionClosed(this);
+        }
+    }
+
+    @Override
+    public void commit() {
+        session.commit();
+    }
+
+    @Override
+    public void commit(boolean force) {
+        session.commit(force);
+    }
+
+    @Override
+    public void rollback() {
+        session.rollback();
+    }
+
+    @Override
+    public void rollback(boolean force) {
+        session.rollback(force);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() {
+        return session.flushStatements();
+    }
+
+    @Override
+    public void clearCache() {
+        session.clearCache();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return session.getConfiguration();
+    }
+
+    @Override
+    public Connection getConnection() {
+        return session.getConnection();
+    }
+
+    private <T> T timed(@Nonnull String statement, @Nonnull Supplier<T> call) {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            T result = call.get();
+            failed = false;
+            return result;
+        } finally {
+            sqlSessionFactory.recordStatement(statement, System.nanoTime() - start, failed);
+        }
     }
 }
@@ -21,11 +21,15 @@ import griffon.annotations.core.Nonnull;
 import griffon.annotations.inject.DependsOn;
 import griffon.core.GriffonApplication;
 import griffon.core.env.Metadata;
+import griffon.core.events.DestroyMVCGroupEvent;
+import griffon.core.events.InitializeMVCGroupEvent;
 import griffon.core.events.StartupStartEvent;
+import griffon.exceptions.GriffonException;
 import griffon.plugins.monitor.MBeanManager;
 import griffon.plugins.mybatis.MybatisCallback;
 import griffon.plugins.mybatis.MybatisFactory;
 import griffon.plugins.mybatis.MybatisHandler;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
 import griffon.plugins.mybatis.MybatisStorage;
 import org.apache.ibatis.session.SqlSession;
 import org.codehaus.griffon.runtime.core.addon.AbstractGriffonAddon;
@@ -34,7 +38,15 @@ import org.codehaus.griffon.runtime.mybatis.monitor.MybatisStorageMonitor;
 import javax.application.event.EventHandler;
 import javax.inject.Inject;
 import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static griffon.util.ConfigUtils.getConfigValueAsBoolean;
 
@@ -45,6 +57,19 @@ import static griffon.util.ConfigUtils.getConfigValueAsBoolean;
 @DependsOn("datasource")
 @Named("mybatis")
 public class MybatisAddon extends AbstractGriffonAddon {
+    public static final String KEY_PARALLEL_STARTUP = "parallel_startup";
+
+    private static final MybatisCallback<Void> CONNECT = new MybatisCallback<Void>() {
+        @Override
+        public Void handle(@Nonnull String sessionFactoryName, @Nonnull SqlSession session) {
+            return null;
+        }
+    };
+
+    @Inject
+    @Named("mybatis")
+    private griffon.core.Configuration mybatisConfiguration;
+
     @Inject
     private MybatisHandler mybatisHandler;
 
@@ -54,6 +79,9 @@ public class MybatisAddon extends AbstractGriffonAddon {
     @Inject
     private MybatisStorage mybatisStorage;
 
+    @Inject
+    private MybatisMemoRegistry mybatisMemoRegistry;
+
     @Inject
     private MBeanManager mbeanManager;
 
@@ -67,19 +95,96 @@ public class MybatisAddon extends AbstractGriffonAddon {
 
     @EventHandler
     public void handleStartupStartEvent(@Nonnull StartupStartEvent event) {
+        List<String> sessionFactoryNames = new ArrayList<>();
         for (String sessionFactoryName : mybatisFactory.getSessionFactoryNames()) {
             Map<String, Object> config = mybatisFactory.getConfigurationFor(sessionFactoryName);
             if (getConfigValueAsBoolean(config, "connect_on_startup", false)) {
-                mybatisHandler.withSqlSession(sessionFactoryName, new MybatisCallback<Void>() {
-                    @Override
-                    public Void handle(@Nonnull String sessionFactoryName, @Nonnull SqlSession session) {
-                        return null;
+                sessionFactoryNames.add(sessionFactoryName);
+            }
+        }
+
+        if (sessionFactoryNames.size() > 1 && mybatisConfiguration.getAsBoolean(KEY_PARALLEL_STARTUP, false)) {
+            connectInParallel(sessionFactoryNames);
+        } else {
+            for (String sessionFactoryName : sessionFactoryNames) {
+                mybatisHandler.withSqlSession(sessionFactoryName, CONNECT);
+            }
+        }
+    }
+
+    @EventHandler
+    public void handleInitializeMVCGroupEvent(@Nonnull InitializeMVCGroupEvent event) {
+        mybatisMemoRegistry.create(event.getGroup().getMvcId());
+    }
+
+    @EventHandler
+    public void handleDestroyMVCGroupEvent(@Nonnull DestroyMVCGroupEvent event) {
+        mybatisMemoRegistry.destroy(event.getGroup().getMvcId());
+    }
+
+    /**
+     * Connects the given session factories concurrently, on no more threads than there are processors. Once a factory
+     * has failed, those that have not started yet are skipped. Any failure is rethrown once every running factory has
+     * finished, as a suppressed exception of a single {@code GriffonException}; factories that did connect are closed
+     * before that.
+     */
+    protected void connectInParallel(@Nonnull List<String> sessionFactoryNames) {
+        int parallelism = Math.min(sessionFactoryNames.size(), Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(parallelism, MybatisAddon::newStartupThread, null, false);
+        AtomicBoolean failed = new AtomicBoolean();
+        List<String> connected = new CopyOnWriteArrayList<>();
+        List<Future<?>> tasks = new ArrayList<>(sessionFactoryNames.size());
+        for (String sessionFactoryName : sessionFactoryNames) {
+            tasks.add(pool.submit(() -> {
+                // once a session factory has failed there is no point in starting the others
+                if (failed.get()) {
+                    return;
+                }
+                try {
+                    mybatisHandler.withSqlSession(sessionFactoryName, CONNECT);
+                    connected.add(sessionFactoryName);
+                } catch (RuntimeException e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }));
+        }
+
+        GriffonException failure = null;
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                try {
+                    tasks.get(i).get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = new GriffonException("Could not connect mybatis session factories on startup");
                     }
-                });
+                    failure.addSuppressed(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GriffonException("Interrupted while connecting mybatis session factory '" + sessionFactoryNames.get(i) + "'", e);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        if (failure != null) {
+            // every task has finished, thus no factory connects after this point
+            for (String sessionFactoryName : connected) {
+                mybatisHandler.closeSqlSession(sessionFactoryName);
             }
+            throw failure;
         }
     }
 
+    @Nonnull
+    private static ForkJoinWorkerThread newStartupThread(@Nonnull ForkJoinPool pool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("mybatis-startup-" + thread.getPoolIndex());
+        return thread;
+    }
+
     @Override
     public void onShutdown(@Nonnull GriffonApplication application) {
         for (String sessionFactoryName : mybatisFactory.getSessionFactoryNames()) {
@@ -21,9 +21,15 @@ import griffon.annotations.inject.DependsOn;
 import griffon.core.Configuration;
 import griffon.core.addon.GriffonAddon;
 import griffon.core.injection.Module;
+import griffon.plugins.mybatis.MybatisExecutorProvider;
 import griffon.plugins.mybatis.MybatisFactory;
 import griffon.plugins.mybatis.MybatisHandler;
+import griffon.plugins.mybatis.MybatisMapperRegistry;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
+import griffon.plugins.mybatis.MybatisShardResolver;
 import griffon.plugins.mybatis.MybatisStorage;
+import griffon.plugins.mybatis.ReactiveMybatisHandler;
+import griffon.plugins.mybatis.ShardedMybatisHandler;
 import org.codehaus.griffon.runtime.core.injection.AbstractModule;
 import org.codehaus.griffon.runtime.util.ResourceBundleProvider;
 import org.kordamp.jipsy.annotations.ServiceProviderFor;
@@ -57,14 +63,38 @@ public class MybatisModule extends AbstractModule {
             .to(DefaultMybatisStorage.class)
             .asSingleton();
 
+        bind(MybatisMapperRegistry.class)
+            .to(DefaultMybatisMapperRegistry.class)
+            .asSingleton();
+
         bind(MybatisFactory.class)
             .to(DefaultMybatisFactory.class)
             .asSingleton();
 
+        bind(MybatisExecutorProvider.class)
+            .to(DefaultMybatisExecutorProvider.class)
+            .asSingleton();
+
+        bind(MybatisMemoRegistry.class)
+            .to(DefaultMybatisMemoRegistry.class)
+            .asSingleton();
+
         bind(MybatisHandler.class)
             .to(DefaultMybatisHandler.class)
             .asSingleton();
 
+        bind(ReactiveMybatisHandler.class)
+            .to(DefaultReactiveMybatisHandler.class)
+            .asSingleton();
+
+        bind(MybatisShardResolver.class)
+            .to(DefaultMybatisShardResolver.class)
+            .asSingleton();
+
+        bind(ShardedMybatisHandler.class)
+            .to(DefaultShardedMybatisHandler.class)
+            .asSingleton();
+
         bind(GriffonAddon.class)
             .to(MybatisAddon.class)
             .asSingleton();
@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Resolves the values of the parameters of a bound statement the same way MyBatis' {@code DefaultParameterHandler}
+ * does, for code that binds or reports them by itself.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class ParameterResolver {
+    private final Configuration configuration;
+    private final BoundSql boundSql;
+    private MetaObject metaObject;
+
+    public ParameterResolver(@Nonnull Configuration configuration, @Nonnull BoundSql boundSql) {
+        this.configuration = requireNonNull(configuration, "Argument 'configuration' must not be null");
+        this.boundSql = requireNonNull(boundSql, "Argument 'boundSql' must not be null");
+    }
+
+    @Nullable
+    public Object resolve(@Nonnull ParameterMapping parameterMapping) {
+        String property = parameterMapping.getProperty();
+        Object parameterObject = boundSql.getParameterObject();
+        if (boundSql.hasAdditionalParameter(property)) {
+            return boundSql.getAdditionalParameter(property);
+        } else if (parameterObject == null) {
+            return null;
+        } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+            return parameterObject;
+        }
+        if (metaObject == null) {
+            metaObject = configuration.newMetaObject(parameterObject);
+        }
+        return metaObject.getValue(property);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The view of a session handed to calls that join it. Only the call that opened the session may end its transaction,
+ * thus commits and closes are ignored while rollbacks mark the transaction as rollback-only.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class PropagatedSqlSession extends SqlSessionDecorator {
+    private final ExecutorType executorType;
+    private volatile boolean rollbackOnly;
+
+    public PropagatedSqlSession(@Nonnull SqlSession delegate, @Nonnull ExecutorType executorType) {
+        super(delegate);
+        this.executorType = requireNonNull(executorType, "Argument 'executorType' must not be null");
+    }
+
+    @Nonnull
+    public ExecutorType getExecutorType() {
+        return executorType;
+    }
+
+    public boolean isRollbackOnly() {
+        return rollbackOnly;
+    }
+
+    public void setRollbackOnly() {
+        this.rollbackOnly = true;
+    }
+
+    @Override
+    public void commit() {
+        // committed by the call that opened the session
+    }
+
+    @Override
+    public void commit(boolean force) {
+        // committed by the call that opened the session
+    }
+
+    @Override
+    public void rollback() {
+        setRollbackOnly();
+    }
+
+    @Override
+    public void rollback(boolean force) {
+        setRollbackOnly();
+    }
+
+    @Override
+    public void close() {
+        // closed by the call that opened the session
+    }
+}
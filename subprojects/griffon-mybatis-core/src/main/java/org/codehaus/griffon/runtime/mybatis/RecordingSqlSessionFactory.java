@@ -18,22 +18,64 @@
 package org.codehaus.griffon.runtime.mybatis;
 
 import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.mapping.Environment;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.TransactionIsolationLevel;
 
 import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Sessions are wrapped with a {@code LinkedSqlSession} unless the environment of the delegate relies on a
+ * {@code TrackingTransactionFactory}, in which case sessions are tracked through their transactions and handed out
+ * as created by MyBatis. Statement metrics require wrapped sessions.
+ *
  * @author Andres Almiray
  */
 public class RecordingSqlSessionFactory extends SqlSessionFactoryDecorator {
+    // a field of its own keeps openSession() call sites monomorphic, SqlSessionFactoryDecorator's are shared
+    private final SqlSessionFactory target;
+    private final boolean wrapSessions;
     private AtomicInteger sessionCount = new AtomicInteger(0);
+    private final Map<String, StatementMetrics> statementMetrics = new ConcurrentHashMap<>();
+    private volatile boolean statementMetricsEnabled;
+    private final Set<TrackedSession> openSessions = ConcurrentHashMap.newKeySet();
+    // microseconds
+    private final LatencyHistogram sessionHoldTimes = new LatencyHistogram();
+    private volatile long leakThreshold;
+    private volatile boolean captureStackTraces;
+    private volatile SessionLeakListener sessionLeakListener;
+    private volatile long nextLeakCheck = System.nanoTime();
 
     public RecordingSqlSessionFactory(@Nonnull SqlSessionFactory delegate) {
         super(delegate);
+        this.target = delegate;
+        Environment environment = delegate.getConfiguration().getEnvironment();
+        if (environment != null && environment.getTransactionFactory() instanceof TrackingTransactionFactory) {
+            ((TrackingTransactionFactory) environment.getTransactionFactory()).setSqlSessionFactory(this);
+            this.wrapSessions = false;
+        } else {
+            this.wrapSessions = true;
+        }
+    }
+
+    /**
+     * @return {@code true} if sessions are wrapped with a {@code LinkedSqlSession}.
+     */
+    public boolean isWrapSessions() {
+        return wrapSessions;
     }
 
     public int increaseSessionCount() {
@@ -48,64 +90,228 @@ public class RecordingSqlSessionFactory extends SqlSessionFactoryDecorator {
         return sessionCount.get();
     }
 
+    /**
+     * Sessions held open longer than the given threshold are reported to the {@code SessionLeakListener}.
+     *
+     * @param leakThreshold the threshold, {@code 0} disables leak detection
+     * @param unit          the unit of the threshold
+     */
+    public void setLeakThreshold(long leakThreshold, @Nonnull TimeUnit unit) {
+        this.leakThreshold = unit.toNanos(Math.max(0, leakThreshold));
+    }
+
+    public long getLeakThreshold(@Nonnull TimeUnit unit) {
+        return unit.convert(leakThreshold, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isCaptureStackTraces() {
+        return captureStackTraces;
+    }
+
+    /**
+     * Records the stack of the code that opens each session. Useful to find leaks, expensive otherwise.
+     */
+    public void setCaptureStackTraces(boolean captureStackTraces) {
+        this.captureStackTraces = captureStackTraces;
+    }
+
+    public void setSessionLeakListener(@Nullable SessionLeakListener sessionLeakListener) {
+        this.sessionLeakListener = sessionLeakListener;
+    }
+
+    void sessionOpened(@Nonnull TrackedSession session) {
+        increaseSessionCount();
+        openSessions.add(session);
+        checkForLeaks(session.getOpenTime());
+    }
+
+    public void sessionClosed(@Nonnull TrackedSession session) {
+        decreaseSessionCount();
+        openSessions.remove(session);
+
+        long heldTime = System.nanoTime() - session.getOpenTime();
+        sessionHoldTimes.record(TimeUnit.NANOSECONDS.toMicros(heldTime));
+        long threshold = leakThreshold;
+        if (threshold > 0 && heldTime > threshold) {
+            reportLeak(session, heldTime, true);
+        }
+    }
+
+    /**
+     * @return the age of the oldest session still open, {@code 0} if there are none.
+     */
+    public long getOldestSessionAge(@Nonnull TimeUnit unit) {
+        long now = System.nanoTime();
+        long oldest = 0;
+        for (TrackedSession session : openSessions) {
+            oldest = Math.max(oldest, now - session.getOpenTime());
+        }
+        return unit.convert(oldest, TimeUnit.NANOSECONDS);
+    }
+
+    public long getSessionHoldTimeAtPercentile(double percentile, @Nonnull TimeUnit unit) {
+        return unit.convert(sessionHoldTimes.getValueAtPercentile(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * Describes every open session older than the leak threshold (all open sessions if there is no threshold),
+     * oldest first.
+     */
+    @Nonnull
+    public List<String> getLeakReport() {
+        long now = System.nanoTime();
+        long threshold = leakThreshold;
+        List<TrackedSession> sessions = new ArrayList<>();
+        for (TrackedSession session : openSessions) {
+            if (now - session.getOpenTime() > threshold) {
+                sessions.add(session);
+            }
+        }
+        sessions.sort(Comparator.comparingLong(TrackedSession::getOpenTime));
+
+        List<String> report = new ArrayList<>(sessions.size());
+        for (TrackedSession session : sessions) {
+            StringBuilder b = new StringBuilder("Session open for ")
+                .append(TimeUnit.NANOSECONDS.toMillis(now - session.getOpenTime()))
+                .append(" ms");
+            if (session.getOpenedBy() != null) {
+                for (StackTraceElement element : session.getOpenedBy().getStackTrace()) {
+                    b.append("\n\tat ").append(element);
+                }
+            }
+            report.add(b.toString());
+        }
+        return report;
+    }
+
+    public boolean isStatementMetricsEnabled() {
+        return statementMetricsEnabled;
+    }
+
+    /**
+     * Enables statement metrics for sessions opened from now on.
+     */
+    public void setStatementMetricsEnabled(boolean statementMetricsEnabled) {
+        this.statementMetricsEnabled = statementMetricsEnabled;
+    }
+
+    public void recordStatement(@Nonnull String statementId, long nanos, boolean failed) {
+        StatementMetrics metrics = statementMetrics.get(statementId);
+        if (metrics == null) {
+            metrics = statementMetrics.computeIfAbsent(statementId, StatementMetrics::new);
+        }
+        metrics.record(nanos, failed);
+    }
+
+    @Nullable
+    public StatementMetrics getStatementMetrics(@Nonnull String statementId) {
+        return statementMetrics.get(statementId);
+    }
+
+    @Nonnull
+    public Collection<StatementMetrics> getStatementMetrics() {
+        return Collections.unmodifiableCollection(statementMetrics.values());
+    }
+
+    public void resetStatementMetrics() {
+        statementMetrics.clear();
+    }
+
     @Override
     public SqlSession openSession() {
-        SqlSession session = super.openSession();
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession());
     }
 
     @Override
     public SqlSession openSession(boolean autoCommit) {
-        SqlSession session = super.openSession(autoCommit);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(autoCommit));
     }
 
     @Override
     public SqlSession openSession(Connection connection) {
-        SqlSession session = super.openSession(connection);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(connection));
     }
 
     @Override
     public SqlSession openSession(TransactionIsolationLevel level) {
-        SqlSession session = super.openSession(level);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(level));
     }
 
     @Override
     public SqlSession openSession(ExecutorType execType) {
-        SqlSession session = super.openSession(execType);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(execType));
     }
 
     @Override
     public SqlSession openSession(ExecutorType execType, boolean autoCommit) {
-        SqlSession session = super.openSession(execType, autoCommit);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(execType, autoCommit));
     }
 
     @Override
     public SqlSession openSession(ExecutorType execType, TransactionIsolationLevel level) {
-        SqlSession session = super.openSession(execType, level);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(execType, level));
     }
 
     @Override
     public SqlSession openSession(ExecutorType execType, Connection connection) {
-        SqlSession session = super.openSession(execType, connection);
-        increaseSessionCount();
-        return wrap(session);
+        return wrap(target.openSession(execType, connection));
     }
 
     @Nonnull
     private SqlSession wrap(@Nonnull SqlSession session) {
-        return session instanceof LinkedSqlSession ? session : new LinkedSqlSession(session, this);
+        if (!wrapSessions) {
+            return session;
+        }
+        increaseSessionCount();
+        if (session instanceof LinkedSqlSession) {
+            return session;
+        }
+
+        LinkedSqlSession linkedSqlSession = new LinkedSqlSession(session, this, captureOpenedBy());
+        openSessions.add(linkedSqlSession);
+        checkForLeaks(linkedSqlSession.getOpenTime());
+        return linkedSqlSession;
+    }
+
+    @Nullable
+    Throwable captureOpenedBy() {
+        return captureStackTraces ? new Throwable("Session opened here") : null;
+    }
+
+    private void checkForLeaks(long now) {
+        // sessions are inspected whenever new ones are requested, at most twice per threshold
+        long threshold = leakThreshold;
+        if (threshold <= 0 || now - nextLeakCheck < 0) {
+            return;
+        }
+        nextLeakCheck = now + threshold / 2;
+
+        for (TrackedSession session : openSessions) {
+            long age = now - session.getOpenTime();
+            if (age > threshold) {
+                reportLeak(session, age, false);
+            }
+        }
+    }
+
+    private void reportLeak(@Nonnull TrackedSession session, long age, boolean closed) {
+        SessionLeakListener listener = sessionLeakListener;
+        if (listener != null && session.markReported()) {
+            Throwable openedBy = session.getOpenedBy();
+            listener.sessionLeaked(TimeUnit.NANOSECONDS.toMillis(age), closed, openedBy != null ? openedBy.getStackTrace() : new StackTraceElement[0]);
+        }
+    }
+
+    /**
+     * @since 3.0.0
+     */
+    @FunctionalInterface
+    public interface SessionLeakListener {
+        /**
+         * @param age      how long the session has been held, in milliseconds
+         * @param closed   whether the session has been closed already
+         * @param openedAt the stack of the code that opened the session, may be empty
+         */
+        void sessionLeaked(long age, boolean closed, @Nonnull StackTraceElement[] openedAt);
     }
 }
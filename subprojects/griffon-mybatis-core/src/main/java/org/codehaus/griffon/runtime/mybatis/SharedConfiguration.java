@@ -0,0 +1,136 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.executor.keygen.KeyGenerator;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@code Configuration} that reuses mappers, result maps, parameter maps and key generators already parsed by a
+ * template. Mapped statements are copied (not parsed) so that they point back to this configuration, thus plugins and
+ * environment remain specific to each session factory. Both configurations must have the same settings.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SharedConfiguration extends Configuration {
+    private final Configuration template;
+
+    public SharedConfiguration(@Nonnull Environment environment, @Nonnull Configuration template) {
+        super(environment);
+        this.template = requireNonNull(template, "Argument 'template' must not be null");
+    }
+
+    @Nonnull
+    public Configuration getTemplate() {
+        return template;
+    }
+
+    /**
+     * Imports all parsed elements from the template. Must be called once settings have been applied.
+     */
+    public void importTemplate() {
+        // names without a '.' are short aliases, possibly ambiguous; they're recreated by each add* method
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        // looking up an ambiguous alias fails, skip them before resolving
+        for (String id : template.getParameterMapNames()) {
+            if (!id.contains(".")) {
+                continue;
+            }
+            ParameterMap parameterMap = template.getParameterMap(id);
+            if (seen.add(parameterMap)) {
+                addParameterMap(parameterMap);
+            }
+        }
+        for (String id : template.getResultMapNames()) {
+            if (!id.contains(".")) {
+                continue;
+            }
+            ResultMap resultMap = template.getResultMap(id);
+            if (seen.add(resultMap)) {
+                addResultMap(resultMap);
+            }
+        }
+        for (String id : template.getKeyGeneratorNames()) {
+            if (id.contains(".")) {
+                addKeyGenerator(id, template.getKeyGenerator(id));
+            }
+        }
+        for (String id : template.getMappedStatementNames()) {
+            if (!id.contains(".")) {
+                continue;
+            }
+            MappedStatement mappedStatement = template.getMappedStatement(id, false);
+            if (seen.add(mappedStatement)) {
+                addMappedStatement(copy(mappedStatement));
+            }
+        }
+    }
+
+    @Override
+    public <T> T getMapper(Class<T> type, SqlSession sqlSession) {
+        if (super.hasMapper(type)) {
+            return super.getMapper(type, sqlSession);
+        }
+        return template.getMapper(type, sqlSession);
+    }
+
+    @Override
+    public boolean hasMapper(Class<?> type) {
+        return super.hasMapper(type) || template.hasMapper(type);
+    }
+
+    @Nonnull
+    private MappedStatement copy(@Nonnull MappedStatement ms) {
+        return new MappedStatement.Builder(this, ms.getId(), ms.getSqlSource(), ms.getSqlCommandType())
+            .resource(ms.getResource())
+            .fetchSize(ms.getFetchSize())
+            .timeout(ms.getTimeout())
+            .statementType(ms.getStatementType())
+            .resultSetType(ms.getResultSetType())
+            .parameterMap(ms.getParameterMap())
+            .resultMaps(ms.getResultMaps())
+            .cache(ms.getCache())
+            .flushCacheRequired(ms.isFlushCacheRequired())
+            .useCache(ms.isUseCache())
+            .resultOrdered(ms.isResultOrdered())
+            .keyGenerator(ms.getKeyGenerator())
+            .keyProperty(join(ms.getKeyProperties()))
+            .keyColumn(join(ms.getKeyColumns()))
+            .databaseId(ms.getDatabaseId())
+            .lang(ms.getLang())
+            .resultSets(join(ms.getResultSets()))
+            .build();
+    }
+
+    private static String join(String[] values) {
+        return values == null ? null : String.join(",", values);
+    }
+}
@@ -188,7 +188,8 @@ public class SqlSessionDecorator implements SqlSession {
 
     @Override
     public <T> T getMapper(Class<T> type) {
-        return delegate.getMapper(type);
+        // bind the mapper to this session so that mapper calls go through the decorator
+        return getConfiguration().getMapper(type, this);
     }
 
     @Override
@@ -0,0 +1,144 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import griffon.plugins.mybatis.Propagation;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+
+import java.util.Locale;
+import java.util.Map;
+
+import static griffon.util.ConfigUtils.getConfigValueAsBoolean;
+import static griffon.util.ConfigUtils.getConfigValueAsInt;
+import static griffon.util.ConfigUtils.getConfigValueAsLong;
+import static griffon.util.ConfigUtils.getConfigValueAsString;
+import static griffon.util.GriffonNameUtils.isBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Session related settings of a single session factory, resolved once from its configuration.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SqlSessionSettings {
+    public static final String KEY_TRANSACTIONAL = "transactional";
+    public static final String KEY_ISOLATION_LEVEL = "isolation_level";
+    public static final String KEY_READ_ONLY = "read_only";
+    public static final String KEY_BATCH_SIZE = "batch_size";
+    public static final String KEY_BATCH_BYTES = "batch_bytes";
+    public static final String KEY_ASYNC_UI_COMPLETION = "async_ui_completion";
+    public static final String KEY_FETCH_SIZE = "fetch_size";
+    public static final String KEY_PROPAGATION = "propagation";
+    public static final String KEY_BULK_COMMIT = "bulk_commit";
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long DEFAULT_BATCH_BYTES = 0L;
+
+    private final boolean transactional;
+    private final TransactionIsolationLevel isolationLevel;
+    private final boolean readOnly;
+    private final int batchSize;
+    private final long batchBytes;
+    private final boolean asyncUICompletion;
+    private final int fetchSize;
+    private final Propagation propagation;
+    private final BulkInserter.CommitMode bulkCommit;
+
+    private SqlSessionSettings(@Nonnull Map<String, Object> config) {
+        this.isolationLevel = toIsolationLevel(getConfigValueAsString(config, KEY_ISOLATION_LEVEL, null));
+        this.transactional = getConfigValueAsBoolean(config, KEY_TRANSACTIONAL, false) || isolationLevel != null;
+        this.readOnly = getConfigValueAsBoolean(config, KEY_READ_ONLY, false);
+        this.batchSize = getConfigValueAsInt(config, KEY_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        this.batchBytes = getConfigValueAsLong(config, KEY_BATCH_BYTES, DEFAULT_BATCH_BYTES);
+        this.asyncUICompletion = getConfigValueAsBoolean(config, KEY_ASYNC_UI_COMPLETION, false);
+        this.fetchSize = getConfigValueAsInt(config, KEY_FETCH_SIZE, 0);
+        this.propagation = toPropagation(getConfigValueAsString(config, KEY_PROPAGATION, null));
+        this.bulkCommit = toBulkCommit(getConfigValueAsString(config, KEY_BULK_COMMIT, null));
+    }
+
+    @Nonnull
+    public static SqlSessionSettings of(@Nonnull Map<String, Object> config) {
+        return new SqlSessionSettings(requireNonNull(config, "Argument 'config' must not be null"));
+    }
+
+    public boolean isTransactional() {
+        return transactional;
+    }
+
+    @Nullable
+    public TransactionIsolationLevel getIsolationLevel() {
+        return isolationLevel;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getBatchBytes() {
+        return batchBytes;
+    }
+
+    public boolean isAsyncUICompletion() {
+        return asyncUICompletion;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    @Nonnull
+    public Propagation getPropagation() {
+        return propagation;
+    }
+
+    @Nonnull
+    public BulkInserter.CommitMode getBulkCommit() {
+        return bulkCommit;
+    }
+
+    @Nullable
+    private static TransactionIsolationLevel toIsolationLevel(@Nullable String value) {
+        if (isBlank(value)) {
+            return null;
+        }
+        return TransactionIsolationLevel.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    @Nonnull
+    private static Propagation toPropagation(@Nullable String value) {
+        if (isBlank(value)) {
+            return Propagation.REQUIRED;
+        }
+        return Propagation.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+
+    @Nonnull
+    private static BulkInserter.CommitMode toBulkCommit(@Nullable String value) {
+        if (isBlank(value)) {
+            return BulkInserter.CommitMode.ALL;
+        }
+        return BulkInserter.CommitMode.valueOf(value.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+
+/**
+ * Call count, error count and latency distribution of a single statement.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class StatementMetrics {
+    private final String statementId;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder errorCount = new LongAdder();
+    private final LongAdder totalTime = new LongAdder();
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0L);
+    // microseconds
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    public StatementMetrics(@Nonnull String statementId) {
+        this.statementId = requireNonBlank(statementId, "Argument 'statementId' must not be blank");
+    }
+
+    @Nonnull
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public void record(long nanos, boolean failed) {
+        count.increment();
+        if (failed) {
+            errorCount.increment();
+        }
+        totalTime.add(nanos);
+        maxTime.accumulate(nanos);
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    public long getTotalTime(@Nonnull TimeUnit unit) {
+        return unit.convert(totalTime.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getMaxTime(@Nonnull TimeUnit unit) {
+        return unit.convert(maxTime.get(), TimeUnit.NANOSECONDS);
+    }
+
+    public long getTimeAtPercentile(double percentile, @Nonnull TimeUnit unit) {
+        return unit.convert(histogram.getValueAtPercentile(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    public void reset() {
+        count.reset();
+        errorCount.reset();
+        totalTime.reset();
+        maxTime.reset();
+        histogram.reset();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A session that forwards every call to the session bound to the calling thread. Mappers created for it are reused
+ * by every {@code withMapper} call on the same session factory, instead of creating a new proxy per session.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class ThreadBoundSqlSession implements SqlSession {
+    private final ThreadLocal<SqlSession> session = new ThreadLocal<>();
+    private final Map<Class<?>, Object> mappers = new ConcurrentHashMap<>();
+    private final Configuration configuration;
+
+    public ThreadBoundSqlSession(@Nonnull Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Binds a session to the calling thread.
+     *
+     * @return the session previously bound to the calling thread, to be restored with {@link #restore(SqlSession)}
+     */
+    @Nullable
+    public SqlSession bind(@Nonnull SqlSession sqlSession) {
+        SqlSession previous = session.get();
+        session.set(sqlSession);
+        return previous;
+    }
+
+    public void restore(@Nullable SqlSession previous) {
+        if (previous != null) {
+            session.set(previous);
+        } else {
+            session.remove();
+        }
+    }
+
+    /**
+     * @return a mapper of the given type bound to this session. The same instance is returned on every call.
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public <T> T getSharedMapper(@Nonnull Class<T> type) {
+        Object mapper = mappers.get(type);
+        if (mapper == null) {
+            mapper = mappers.computeIfAbsent(type, t -> configuration.getMapper(t, this));
+        }
+        return (T) mapper;
+    }
+
+    @Nonnull
+    private SqlSession current() {
+        SqlSession sqlSession = session.get();
+        if (sqlSession == null) {
+            throw new IllegalStateException("Mapper used outside of its withMapper callback");
+        }
+        return sqlSession;
+    }
+
+    @Override
+    public <T> T selectOne(String statement) {
+        return current().selectOne(statement);
+    }
+
+    @Override
+    public <T> T selectOne(String statement, Object parameter) {
+        return current().selectOne(statement, parameter);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement) {
+        return current().selectList(statement);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter) {
+        return current().selectList(statement, parameter);
+    }
+
+    @Override
+    public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
+        return current().selectList(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, String mapKey) {
+        return current().selectMap(statement, mapKey);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey) {
+        return current().selectMap(statement, parameter, mapKey);
+    }
+
+    @Override
+    public <K, V> Map<K, V> selectMap(String statement, Object parameter, String mapKey, RowBounds rowBounds) {
+        return current().selectMap(statement, parameter, mapKey, rowBounds);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement) {
+        return current().selectCursor(statement);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter) {
+        return current().selectCursor(statement, parameter);
+    }
+
+    @Override
+    public <T> Cursor<T> selectCursor(String statement, Object parameter, RowBounds rowBounds) {
+        return current().selectCursor(statement, parameter, rowBounds);
+    }
+
+    @Override
+    public void select(String statement, Object parameter, ResultHandler handler) {
+        current().select(statement, parameter, handler);
+    }
+
+    @Override
+    public void select(String statement, ResultHandler handler) {
+        current().select(statement, handler);
+    }
+
+    @Override
+    public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
+        current().select(statement, parameter, rowBounds, handler);
+    }
+
+    @Override
+    public int insert(String statement) {
+        return current().insert(statement);
+    }
+
+    @Override
+    public int insert(String statement, Object parameter) {
+        return current().insert(statement, parameter);
+    }
+
+    @Override
+    public int update(String statement) {
+        return current().update(statement);
+    }
+
+    @Override
+    public int update(String statement, Object parameter) {
+        return current().update(statement, parameter);
+    }
+
+    @Override
+    public int delete(String statement) {
+        return current().delete(statement);
+    }
+
+    @Override
+    public int delete(String statement, Object parameter) {
+        return current().delete(statement, parameter);
+    }
+
+    @Override
+    public void commit() {
+        current().commit();
+    }
+
+    @Override
+    public void commit(boolean force) {
+        current().commit(force);
+    }
+
+    @Override
+    public void rollback() {
+        current().rollback();
+    }
+
+    @Override
+    public void rollback(boolean force) {
+        current().rollback(force);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() {
+        return current().flushStatements();
+    }
+
+    @Override
+    public void close() {
+        current().close();
+    }
+
+    @Override
+    public void clearCache() {
+        current().clearCache();
+    }
+
+    @Override
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public <T> T getMapper(Class<T> type) {
+        return getSharedMapper(type);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return current().getConnection();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Stands in for the session that owns it when {@code RecordingSqlSessionFactory} does not wrap sessions.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class TrackedJdbcTransaction extends JdbcTransaction implements TrackedSession {
+    private static final AtomicIntegerFieldUpdater<TrackedJdbcTransaction> CLOSED = AtomicIntegerFieldUpdater.newUpdater(TrackedJdbcTransaction.class, "closed");
+    private static final AtomicIntegerFieldUpdater<TrackedJdbcTransaction> REPORTED = AtomicIntegerFieldUpdater.newUpdater(TrackedJdbcTransaction.class, "reported");
+
+    private final RecordingSqlSessionFactory sqlSessionFactory;
+    private final long openTime = System.nanoTime();
+    private final Throwable openedBy;
+    private volatile int closed;
+    private volatile int reported;
+
+    public TrackedJdbcTransaction(@Nonnull DataSource dataSource, @Nullable TransactionIsolationLevel level, boolean autoCommit, @Nonnull RecordingSqlSessionFactory sqlSessionFactory) {
+        super(dataSource, level, autoCommit);
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.openedBy = sqlSessionFactory.captureOpenedBy();
+    }
+
+    public TrackedJdbcTransaction(@Nonnull Connection connection, @Nonnull RecordingSqlSessionFactory sqlSessionFactory) {
+        super(connection);
+        this.sqlSessionFactory = sqlSessionFactory;
+        this.openedBy = sqlSessionFactory.captureOpenedBy();
+    }
+
+    @Override
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Nullable
+    @Override
+    public Throwable getOpenedBy() {
+        return openedBy;
+    }
+
+    @Override
+    public boolean markReported() {
+        return REPORTED.compareAndSet(this, 0, 1);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            super.close();
+        } finally {
+            if (CLOSED.compareAndSet(this, 0, 1)) {
+                sqlSessionFactory.sessionClosed(this);
+            }
+        }
+    }
+}
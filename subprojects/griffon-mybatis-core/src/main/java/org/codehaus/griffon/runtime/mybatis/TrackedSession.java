@@ -0,0 +1,47 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nullable;
+
+/**
+ * A session whose lifetime is recorded by {@code RecordingSqlSessionFactory}, either through a wrapper around the
+ * session itself or through the transaction owned by the session.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface TrackedSession {
+    /**
+     * @return the value of {@code System.nanoTime()} when this session was opened.
+     */
+    long getOpenTime();
+
+    /**
+     * @return the stack of the code that opened this session, if captured.
+     */
+    @Nullable
+    Throwable getOpenedBy();
+
+    /**
+     * Flags this session as reported leaked.
+     *
+     * @return {@code false} if it had already been reported
+     */
+    boolean markReported();
+}
@@ -0,0 +1,66 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+/**
+ * Creates transactions that report their lifetime to a {@code RecordingSqlSessionFactory}. Every session owns exactly
+ * one transaction, closed along with the session, thus sessions may be tracked without wrapping them.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class TrackingTransactionFactory extends JdbcTransactionFactory {
+    private volatile RecordingSqlSessionFactory sqlSessionFactory;
+
+    void setSqlSessionFactory(@Nullable RecordingSqlSessionFactory sqlSessionFactory) {
+        this.sqlSessionFactory = sqlSessionFactory;
+    }
+
+    @Override
+    public Transaction newTransaction(Connection conn) {
+        RecordingSqlSessionFactory factory = sqlSessionFactory;
+        if (factory == null) {
+            return super.newTransaction(conn);
+        }
+        return track(factory, new TrackedJdbcTransaction(conn, factory));
+    }
+
+    @Override
+    public Transaction newTransaction(DataSource ds, TransactionIsolationLevel level, boolean autoCommit) {
+        RecordingSqlSessionFactory factory = sqlSessionFactory;
+        if (factory == null) {
+            return super.newTransaction(ds, level, autoCommit);
+        }
+        return track(factory, new TrackedJdbcTransaction(ds, level, autoCommit, factory));
+    }
+
+    @Nonnull
+    private static Transaction track(@Nonnull RecordingSqlSessionFactory factory, @Nonnull TrackedJdbcTransaction transaction) {
+        factory.sessionOpened(transaction);
+        return transaction;
+    }
+}
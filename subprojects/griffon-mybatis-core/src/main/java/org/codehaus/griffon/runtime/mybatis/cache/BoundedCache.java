@@ -0,0 +1,212 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.cache.Cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A size bounded {@code Cache} with either plain LRU eviction or W-TinyLFU eviction, where new entries land in a small
+ * LRU window and only make it into the main LRU region if they're accessed more often than the entry they'd evict.
+ * <p>
+ * How values are kept, and what readers get back, is up to a {@code CacheStore}. Entries are evicted as well while
+ * the values kept add up to more bytes than the store allows.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class BoundedCache implements Cache {
+    public enum Policy {
+        LRU, TINYLFU
+    }
+
+    private final String id;
+    private final CacheStore store;
+    private final int windowSize;
+    private final int mainSize;
+    private final LinkedHashMap<Object, Object> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Object, Object> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch sketch;
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public BoundedCache(@Nonnull String id, @Nonnull Policy policy, int maximumSize, @Nonnull CacheStore store) {
+        this.id = requireNonBlank(id, "Argument 'id' must not be blank");
+        requireNonNull(policy, "Argument 'policy' must not be null");
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Argument 'maximumSize' must be greater than zero");
+        }
+        this.store = requireNonNull(store, "Argument 'store' must not be null");
+
+        if (policy == Policy.TINYLFU) {
+            windowSize = Math.max(1, maximumSize / 100);
+            mainSize = maximumSize - windowSize;
+            sketch = new FrequencySketch(maximumSize);
+        } else {
+            windowSize = maximumSize;
+            mainSize = 0;
+            sketch = null;
+        }
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return window.size() + main.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        if (value == null) {
+            // TransactionalCache flushes missed entries as null values
+            return;
+        }
+
+        Object stored = store.write(value);
+        if (stored == null) {
+            return;
+        }
+
+        synchronized (this) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            remove(key);
+            window.put(key, stored);
+            bytes += sizeOf(stored);
+
+            if (window.size() > windowSize) {
+                Map.Entry<Object, Object> candidate = eldest(window);
+                window.remove(candidate.getKey());
+                admit(candidate);
+            }
+            while (bytes > store.getMaximumBytes() && getSize() > 0) {
+                evict(main.isEmpty() ? window : main);
+            }
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Object value;
+        synchronized (this) {
+            if (sketch != null) {
+                sketch.increment(key);
+            }
+            value = window.get(key);
+            if (value == null) {
+                value = main.get(key);
+            }
+        }
+
+        if (value == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return store.read(value);
+    }
+
+    @Override
+    public synchronized Object removeObject(Object key) {
+        Object value = remove(key);
+        return value != null ? store.read(value) : null;
+    }
+
+    @Override
+    public synchronized void clear() {
+        window.clear();
+        main.clear();
+        bytes = 0;
+    }
+
+    private void admit(@Nonnull Map.Entry<Object, Object> candidate) {
+        if (main.size() < mainSize) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+
+        Map.Entry<Object, Object> victim = mainSize > 0 ? eldest(main) : null;
+        if (victim != null && sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+            main.remove(victim.getKey());
+            bytes -= sizeOf(victim.getValue());
+            main.put(candidate.getKey(), candidate.getValue());
+        } else {
+            bytes -= sizeOf(candidate.getValue());
+        }
+        evictions.increment();
+    }
+
+    private void evict(@Nonnull LinkedHashMap<Object, Object> region) {
+        Iterator<Map.Entry<Object, Object>> it = region.entrySet().iterator();
+        bytes -= sizeOf(it.next().getValue());
+        it.remove();
+        evictions.increment();
+    }
+
+    private Object remove(Object key) {
+        Object value = window.remove(key);
+        if (value == null) {
+            value = main.remove(key);
+        }
+        if (value != null) {
+            bytes -= sizeOf(value);
+        }
+        return value;
+    }
+
+    @Nonnull
+    private static Map.Entry<Object, Object> eldest(@Nonnull LinkedHashMap<Object, Object> region) {
+        return region.entrySet().iterator().next();
+    }
+
+    private long sizeOf(Object value) {
+        return store.sizeOf(value);
+    }
+}
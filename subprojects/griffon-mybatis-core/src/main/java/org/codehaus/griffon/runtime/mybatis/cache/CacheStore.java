@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+
+/**
+ * Decides how a {@code BoundedCache} keeps its values. The {@code cache_store} setting selects either one of the
+ * built-in stores by name ({@code heap} or {@code offheap}) or any class implementing this interface that has a
+ * public no-args constructor. A single store is shared by the caches of every namespace of a session factory.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface CacheStore {
+    /**
+     * @param value the value to be cached
+     * @return the form in which the value is kept, or {@code null} if it can't be cached.
+     */
+    @Nullable
+    Object write(@Nonnull Object value);
+
+    /**
+     * @param stored a value as returned by {@code write}
+     * @return the value handed to readers of the cache.
+     */
+    @Nonnull
+    Object read(@Nonnull Object stored);
+
+    /**
+     * @param stored a value as returned by {@code write}
+     * @return the number of bytes the value counts against {@code getMaximumBytes()}.
+     */
+    long sizeOf(@Nonnull Object stored);
+
+    /**
+     * @return the total size of the values kept per cache, {@code Long.MAX_VALUE} if there is no limit.
+     */
+    long getMaximumBytes();
+}
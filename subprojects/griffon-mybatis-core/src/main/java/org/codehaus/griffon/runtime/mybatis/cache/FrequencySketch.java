@@ -0,0 +1,92 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often keys are accessed. Counters are packed sixteen to a
+ * {@code long}. They are halved periodically so that old popularity fades away. Not thread-safe.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final int MAX_FREQUENCY = 15;
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int size = Integer.highestOneBit(Math.max(16, maximumSize) - 1) << 1;
+        this.table = new long[size >>> 4];
+        this.mask = size - 1;
+        this.sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_FREQUENCY;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counterAt(indexOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (counterAt(index) < MAX_FREQUENCY) {
+                table[index >>> 4] += 1L << offsetOf(index);
+            }
+        }
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        // halves all sixteen counters of a word at once, the mask drops the bit each one shifts into its neighbour
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private int counterAt(int index) {
+        return (int) (table[index >>> 4] >>> offsetOf(index)) & MAX_FREQUENCY;
+    }
+
+    private static int offsetOf(int index) {
+        return (index & 15) << 2;
+    }
+
+    private int indexOf(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        h += h >>> 32;
+        return (int) h & mask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps values on the heap as they are. Readers get a copy of cached lists that still holds the same elements, thus
+ * cached entities are shared by all of them.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class HeapCacheStore implements CacheStore {
+    @Nonnull
+    @Override
+    public Object write(@Nonnull Object value) {
+        return value;
+    }
+
+    @Nonnull
+    @Override
+    public Object read(@Nonnull Object stored) {
+        // readers may modify the list they get back, never the one that is cached
+        return stored instanceof List ? new ArrayList<>((List<?>) stored) : stored;
+    }
+
+    @Override
+    public long sizeOf(@Nonnull Object stored) {
+        return 0L;
+    }
+
+    @Override
+    public long getMaximumBytes() {
+        return Long.MAX_VALUE;
+    }
+}
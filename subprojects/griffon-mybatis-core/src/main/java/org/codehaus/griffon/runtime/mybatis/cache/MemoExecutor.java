@@ -0,0 +1,170 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import griffon.plugins.mybatis.MybatisMemoRegistry;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves queries from the memo bound to the current thread, if any. Writes invalidate their namespace in every memo,
+ * once when issued and once more when the session commits so that results read in the meantime do not outlive them.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class MemoExecutor implements Executor {
+    private final Executor delegate;
+    private final MybatisMemoRegistry memoRegistry;
+    private final Set<String> dirtyNamespaces = new LinkedHashSet<>();
+
+    public MemoExecutor(@Nonnull Executor delegate, @Nonnull MybatisMemoRegistry memoRegistry) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.memoRegistry = requireNonNull(memoRegistry, "Argument 'memoRegistry' must not be null");
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        try {
+            invalidateDirtyNamespaces();
+        } finally {
+            delegate.close(forceRollback);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        String namespace = namespaceOf(ms.getId());
+        dirtyNamespaces.add(namespace);
+        memoRegistry.invalidate(namespace);
+        return delegate.update(ms, parameter);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+        if (ms.isFlushCacheRequired()) {
+            memoRegistry.invalidate(namespaceOf(ms.getId()));
+        } else if (ms.isUseCache() && resultHandler == null && ms.getStatementType() != StatementType.CALLABLE) {
+            return memoRegistry.memoize(namespaceOf(ms.getId()), key, () -> delegate.query(ms, parameter, rowBounds, resultHandler, key, boundSql));
+        }
+        return delegate.query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        try {
+            delegate.commit(required);
+        } finally {
+            invalidateDirtyNamespaces();
+        }
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        try {
+            delegate.rollback(required);
+        } finally {
+            invalidateDirtyNamespaces();
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameter, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        throw new UnsupportedOperationException("This method should not be called");
+    }
+
+    private void invalidateDirtyNamespaces() {
+        if (dirtyNamespaces.isEmpty()) {
+            return;
+        }
+        for (String namespace : dirtyNamespaces) {
+            memoRegistry.invalidate(namespace);
+        }
+        dirtyNamespaces.clear();
+    }
+
+    @Nonnull
+    private static String namespaceOf(@Nonnull String statementId) {
+        int index = statementId.lastIndexOf('.');
+        return index > 0 ? statementId.substring(0, index) : statementId;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps values serialized into direct buffers outside of the heap. Only {@code Serializable} values are cached,
+ * every read returns a fresh copy of the whole value, and the total size of cached values is bounded as well.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class OffHeapCacheStore implements CacheStore {
+    private static final Logger LOG = LoggerFactory.getLogger(OffHeapCacheStore.class);
+
+    private final long maximumBytes;
+
+    public OffHeapCacheStore(long maximumBytes) {
+        this.maximumBytes = maximumBytes;
+    }
+
+    @Nullable
+    @Override
+    public Object write(@Nonnull Object value) {
+        if (!(value instanceof Serializable)) {
+            LOG.debug("Not caching non serializable value of type {}", value.getClass().getName());
+            return null;
+        }
+        return serialize((Serializable) value);
+    }
+
+    @Nonnull
+    @Override
+    public Object read(@Nonnull Object stored) {
+        return deserialize((ByteBuffer) stored);
+    }
+
+    @Override
+    public long sizeOf(@Nonnull Object stored) {
+        return ((ByteBuffer) stored).capacity();
+    }
+
+    @Override
+    public long getMaximumBytes() {
+        return maximumBytes;
+    }
+
+    @Nonnull
+    private static ByteBuffer serialize(@Nonnull Serializable value) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(value);
+            oos.flush();
+            byte[] data = out.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+            buffer.put(data);
+            buffer.flip();
+            return buffer;
+        } catch (IOException e) {
+            throw new CacheException("Error serializing object. Cause: " + e, e);
+        }
+    }
+
+    @Nonnull
+    private static Object deserialize(@Nonnull ByteBuffer buffer) {
+        try (ObjectInputStream ois = new ResourcesObjectInputStream(new ByteBufferInputStream(buffer.duplicate()))) {
+            return ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new CacheException("Error deserializing object. Cause: " + e, e);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    private static final class ResourcesObjectInputStream extends ObjectInputStream {
+        private ResourcesObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+            return Resources.classForName(desc.getName());
+        }
+    }
+}
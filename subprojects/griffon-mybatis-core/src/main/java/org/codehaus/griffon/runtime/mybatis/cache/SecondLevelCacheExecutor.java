@@ -0,0 +1,191 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BaseExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caches query results of statements whose mapper does not declare a cache. Entries become visible to other sessions
+ * once the owning session commits, just like MyBatis' own second level cache. Statements that flush the cache, such
+ * as inserts, updates and deletes, clear the cached results of every namespace once the session commits.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SecondLevelCacheExecutor implements Executor {
+    private final Executor delegate;
+    private final SecondLevelCaches caches;
+    private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+
+    public SecondLevelCacheExecutor(@Nonnull Executor delegate, @Nonnull SecondLevelCaches caches) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.caches = requireNonNull(caches, "Argument 'caches' must not be null");
+        if (delegate instanceof BaseExecutor) {
+            // nested queries and deferred loads should go through this executor too
+            delegate.setExecutorWrapper(this);
+        }
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        try {
+            if (forceRollback) {
+                tcm.rollback();
+            } else {
+                tcm.commit();
+            }
+        } finally {
+            delegate.close(forceRollback);
+        }
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        flushCacheIfRequired(ms);
+        return delegate.update(ms, parameter);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        flushCacheIfRequired(ms);
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+        if (ms.isFlushCacheRequired()) {
+            clearCaches();
+        }
+        Cache cache = resolveCache(ms);
+        if (cache != null) {
+            if (ms.isUseCache() && resultHandler == null && ms.getStatementType() != StatementType.CALLABLE) {
+                @SuppressWarnings("unchecked")
+                List<E> list = (List<E>) tcm.getObject(cache, key);
+                if (list == null) {
+                    list = delegate.query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+                    // the caller may modify its list before the entry is cached on commit
+                    tcm.putObject(cache, key, new ArrayList<>(list));
+                }
+                return list;
+            }
+        }
+        return delegate.query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+        tcm.commit();
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        try {
+            delegate.rollback(required);
+        } finally {
+            if (required) {
+                tcm.rollback();
+            }
+        }
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameter, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        throw new UnsupportedOperationException("This method should not be called");
+    }
+
+    private void flushCacheIfRequired(MappedStatement ms) {
+        if (ms.isFlushCacheRequired()) {
+            clearCaches();
+        }
+    }
+
+    private void clearCaches() {
+        // a write may change what any other mapper reads from the same tables, not just its own namespace
+        for (Cache cache : caches.getActiveCaches()) {
+            tcm.clear(cache);
+        }
+    }
+
+    private Cache resolveCache(MappedStatement ms) {
+        // statements of mappers with their own cache are handled by MyBatis
+        return ms.getCache() != null ? null : caches.getCache(ms);
+    }
+}
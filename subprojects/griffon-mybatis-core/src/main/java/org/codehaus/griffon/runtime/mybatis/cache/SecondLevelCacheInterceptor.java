@@ -0,0 +1,54 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decorates every executor of a session factory with a {@code SecondLevelCacheExecutor}.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SecondLevelCacheInterceptor implements Interceptor {
+    private final SecondLevelCaches caches;
+
+    public SecondLevelCacheInterceptor(@Nonnull SecondLevelCaches caches) {
+        this.caches = requireNonNull(caches, "Argument 'caches' must not be null");
+    }
+
+    @Nonnull
+    public SecondLevelCaches getCaches() {
+        return caches;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? new SecondLevelCacheExecutor((Executor) target, caches) : target;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.cache;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static griffon.util.ConfigUtils.getConfigValue;
+import static griffon.util.ConfigUtils.getConfigValueAsInt;
+import static griffon.util.ConfigUtils.getConfigValueAsLong;
+import static griffon.util.ConfigUtils.getConfigValueAsString;
+
+/**
+ * Second level caches of a single session factory, one per mapper namespace. They apply to statements of mappers that
+ * don't declare a cache of their own. Mappers may read the same tables, thus any write clears all of them.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SecondLevelCaches {
+    public static final String KEY_CACHE_POLICY = "cache_policy";
+    public static final String KEY_CACHE_SIZE = "cache_size";
+    public static final String KEY_CACHE_STORE = "cache_store";
+    public static final String KEY_CACHE_OFFHEAP_BYTES = "cache_offheap_bytes";
+    public static final String KEY_CACHE_FLUSH_INTERVAL = "cache_flush_interval";
+    public static final String KEY_CACHE_NAMESPACES = "cache_namespaces";
+
+    public static final String POLICY_NONE = "none";
+    public static final String STORE_HEAP = "heap";
+    public static final String STORE_OFFHEAP = "offheap";
+
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+    private static final long DEFAULT_OFFHEAP_BYTES = 64L * 1024 * 1024;
+
+    private final BoundedCache.Policy policy;
+    private final int size;
+    private final CacheStore store;
+    private final long flushInterval;
+    private final Set<String> namespaces;
+    private final Map<String, BoundedCache> caches = new ConcurrentHashMap<>();
+    private final Map<String, Cache> decoratedCaches = new ConcurrentHashMap<>();
+
+    public SecondLevelCaches(@Nonnull BoundedCache.Policy policy, int size, @Nonnull CacheStore store, long flushInterval, @Nonnull Set<String> namespaces) {
+        this.policy = policy;
+        this.size = size;
+        this.store = store;
+        this.flushInterval = flushInterval;
+        this.namespaces = namespaces;
+    }
+
+    /**
+     * Reads cache settings from the configuration of a session factory.
+     *
+     * @return the caches to be used or {@code null} if caching is disabled
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static SecondLevelCaches of(@Nonnull Map<String, Object> config) {
+        String policy = getConfigValueAsString(config, KEY_CACHE_POLICY, POLICY_NONE).toUpperCase(Locale.ROOT);
+        if (POLICY_NONE.equalsIgnoreCase(policy)) {
+            return null;
+        }
+
+        Set<String> namespaces = new LinkedHashSet<>();
+        Object value = getConfigValue(config, KEY_CACHE_NAMESPACES, Collections.emptyList());
+        if (value instanceof Collection) {
+            for (Object namespace : (Collection<Object>) value) {
+                namespaces.add(String.valueOf(namespace));
+            }
+        }
+
+        return new SecondLevelCaches(
+            BoundedCache.Policy.valueOf(policy),
+            getConfigValueAsInt(config, KEY_CACHE_SIZE, DEFAULT_CACHE_SIZE),
+            createStore(config),
+            getConfigValueAsLong(config, KEY_CACHE_FLUSH_INTERVAL, 0L),
+            namespaces);
+    }
+
+    @Nonnull
+    private static CacheStore createStore(@Nonnull Map<String, Object> config) {
+        String store = getConfigValueAsString(config, KEY_CACHE_STORE, STORE_HEAP);
+        if (STORE_HEAP.equalsIgnoreCase(store)) {
+            return new HeapCacheStore();
+        } else if (STORE_OFFHEAP.equalsIgnoreCase(store)) {
+            return new OffHeapCacheStore(getConfigValueAsLong(config, KEY_CACHE_OFFHEAP_BYTES, DEFAULT_OFFHEAP_BYTES));
+        }
+
+        try {
+            return (CacheStore) Resources.classForName(store).getConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Invalid value for " + KEY_CACHE_STORE + ": " + store, e);
+        }
+    }
+
+    /**
+     * @return the cache for the namespace of the given statement, or {@code null} if the statement is not cached.
+     */
+    @Nullable
+    public Cache getCache(@Nonnull MappedStatement ms) {
+        String namespace = namespaceOf(ms.getId());
+        Cache cache = decoratedCaches.get(namespace);
+        if (cache == null) {
+            if (!namespaces.isEmpty() && !namespaces.contains(namespace)) {
+                return null;
+            }
+            cache = decoratedCaches.computeIfAbsent(namespace, this::createCache);
+        }
+        return cache;
+    }
+
+    @Nonnull
+    public Collection<BoundedCache> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+    /**
+     * @return the caches created so far, as seen by executors.
+     */
+    @Nonnull
+    public Collection<Cache> getActiveCaches() {
+        return Collections.unmodifiableCollection(decoratedCaches.values());
+    }
+
+    public void clear() {
+        for (Cache cache : decoratedCaches.values()) {
+            cache.clear();
+        }
+    }
+
+    @Nonnull
+    private Cache createCache(@Nonnull String namespace) {
+        BoundedCache cache = new BoundedCache(namespace, policy, size, store);
+        caches.put(namespace, cache);
+        if (flushInterval > 0) {
+            ScheduledCache scheduledCache = new ScheduledCache(cache);
+            scheduledCache.setClearInterval(flushInterval);
+            return scheduledCache;
+        }
+        return cache;
+    }
+
+    @Nonnull
+    private static String namespaceOf(@Nonnull String statementId) {
+        int index = statementId.lastIndexOf('.');
+        return index > 0 ? statementId.substring(0, index) : statementId;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class CacheStatistics {
+    private final String namespace;
+    private final int size;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final double hitRatio;
+    private final long bytes;
+
+    @ConstructorProperties({"namespace", "size", "hitCount", "missCount", "evictionCount", "hitRatio", "bytes"})
+    public CacheStatistics(String namespace, int size, long hitCount, long missCount, long evictionCount, double hitRatio, long bytes) {
+        this.namespace = namespace;
+        this.size = size;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.hitRatio = hitRatio;
+        this.bytes = bytes;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public double getHitRatio() {
+        return hitRatio;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.env.Metadata;
+import org.codehaus.griffon.runtime.monitor.AbstractMBeanRegistration;
+import org.codehaus.griffon.runtime.mybatis.pool.InstrumentedDataSource;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class ConnectionPoolMonitor extends AbstractMBeanRegistration implements ConnectionPoolMonitorMXBean {
+    private InstrumentedDataSource delegate;
+    private final String name;
+
+    public ConnectionPoolMonitor(@Nonnull Metadata metadata, @Nonnull InstrumentedDataSource delegate, @Nonnull String name) {
+        super(metadata);
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.name = name;
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+        return new ObjectName("griffon.plugins.mybatis:type=ConnectionPool,application=" + metadata.getApplicationName() + ",name=" + this.name);
+    }
+
+    @Override
+    public void postDeregister() {
+        delegate = null;
+        super.postDeregister();
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return delegate.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return delegate.getActiveConnections();
+    }
+
+    @Override
+    public int getPeakActiveConnections() {
+        return delegate.getPeakActiveConnections();
+    }
+
+    @Override
+    public int getIdleConnections() {
+        return delegate.getIdleConnections();
+    }
+
+    @Override
+    public int getPendingAcquisitions() {
+        return delegate.getPendingAcquisitions();
+    }
+
+    @Override
+    public long getAcquisitionCount() {
+        return delegate.getAcquisitionCount();
+    }
+
+    @Override
+    public long getAcquisitionTimeoutCount() {
+        return delegate.getAcquisitionTimeoutCount();
+    }
+
+    @Override
+    public long getAcquisitionFailureCount() {
+        return delegate.getAcquisitionFailureCount();
+    }
+
+    @Override
+    public long getWaitTimeP50() {
+        return delegate.getWaitTimeAtPercentile(50d, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public long getWaitTimeP90() {
+        return delegate.getWaitTimeAtPercentile(90d, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public long getWaitTimeP99() {
+        return delegate.getWaitTimeAtPercentile(99d, TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public boolean isExhausted() {
+        return delegate.isExhausted();
+    }
+
+    @Override
+    public void resetStatistics() {
+        delegate.resetStatistics();
+    }
+}
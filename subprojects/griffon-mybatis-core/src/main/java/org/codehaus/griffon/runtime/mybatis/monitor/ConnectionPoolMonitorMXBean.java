@@ -0,0 +1,62 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface ConnectionPoolMonitorMXBean {
+    /**
+     * @return the size of the pool, {@code 0} if unbounded or unknown.
+     */
+    int getMaximumPoolSize();
+
+    int getActiveConnections();
+
+    int getPeakActiveConnections();
+
+    /**
+     * @return idle connections in the pool, {@code -1} if the pool does not disclose them.
+     */
+    int getIdleConnections();
+
+    /**
+     * @return threads currently waiting for a connection.
+     */
+    int getPendingAcquisitions();
+
+    long getAcquisitionCount();
+
+    long getAcquisitionTimeoutCount();
+
+    long getAcquisitionFailureCount();
+
+    /**
+     * @return time spent waiting for a connection in microseconds, 50th percentile.
+     */
+    long getWaitTimeP50();
+
+    long getWaitTimeP90();
+
+    long getWaitTimeP99();
+
+    boolean isExhausted();
+
+    void resetStatistics();
+}
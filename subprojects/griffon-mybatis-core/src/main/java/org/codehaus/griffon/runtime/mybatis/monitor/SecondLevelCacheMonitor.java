@@ -0,0 +1,85 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.env.Metadata;
+import org.codehaus.griffon.runtime.monitor.AbstractMBeanRegistration;
+import org.codehaus.griffon.runtime.mybatis.cache.BoundedCache;
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCaches;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Comparator.comparing;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SecondLevelCacheMonitor extends AbstractMBeanRegistration implements SecondLevelCacheMonitorMXBean {
+    private SecondLevelCaches delegate;
+    private final String name;
+
+    public SecondLevelCacheMonitor(@Nonnull Metadata metadata, @Nonnull SecondLevelCaches delegate, @Nonnull String name) {
+        super(metadata);
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.name = name;
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+        return new ObjectName("griffon.plugins.mybatis:type=SecondLevelCache,application=" + metadata.getApplicationName() + ",name=" + this.name);
+    }
+
+    @Override
+    public void postDeregister() {
+        delegate = null;
+        super.postDeregister();
+    }
+
+    @Override
+    public CacheStatistics[] getCaches() {
+        List<BoundedCache> caches = new ArrayList<>(delegate.getCaches());
+        caches.sort(comparing(BoundedCache::getId));
+
+        CacheStatistics[] statistics = new CacheStatistics[caches.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            BoundedCache cache = caches.get(i);
+            long hits = cache.getHitCount();
+            long requests = hits + cache.getMissCount();
+            statistics[i] = new CacheStatistics(
+                cache.getId(),
+                cache.getSize(),
+                hits,
+                cache.getMissCount(),
+                cache.getEvictionCount(),
+                requests > 0 ? hits / (double) requests : 0d,
+                cache.getBytes());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+}
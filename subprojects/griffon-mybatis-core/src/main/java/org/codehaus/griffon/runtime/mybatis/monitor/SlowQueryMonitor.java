@@ -0,0 +1,96 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.env.Metadata;
+import org.codehaus.griffon.runtime.monitor.AbstractMBeanRegistration;
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQuery;
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQueryLog;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SlowQueryMonitor extends AbstractMBeanRegistration implements SlowQueryMonitorMXBean {
+    private SlowQueryLog delegate;
+    private final String name;
+
+    public SlowQueryMonitor(@Nonnull Metadata metadata, @Nonnull SlowQueryLog delegate, @Nonnull String name) {
+        super(metadata);
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.name = name;
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+        return new ObjectName("griffon.plugins.mybatis:type=SlowQueries,application=" + metadata.getApplicationName() + ",name=" + this.name);
+    }
+
+    @Override
+    public void postDeregister() {
+        delegate = null;
+        super.postDeregister();
+    }
+
+    @Override
+    public long getThreshold() {
+        return delegate.getThreshold(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setThreshold(long threshold) {
+        delegate.setThreshold(threshold, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int getSampleRate() {
+        return delegate.getSampleRate();
+    }
+
+    @Override
+    public void setSampleRate(int sampleRate) {
+        delegate.setSampleRate(sampleRate);
+    }
+
+    @Override
+    public long getSampledCount() {
+        return delegate.getSampledCount();
+    }
+
+    @Override
+    public long getSlowQueryCount() {
+        return delegate.getSlowQueryCount();
+    }
+
+    @Override
+    public SlowQuery[] getSlowQueries() {
+        return delegate.getSlowQueries().toArray(new SlowQuery[0]);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+}
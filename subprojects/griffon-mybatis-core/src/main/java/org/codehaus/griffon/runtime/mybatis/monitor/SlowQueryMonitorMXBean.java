@@ -0,0 +1,51 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQuery;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public interface SlowQueryMonitorMXBean {
+    /**
+     * @return threshold in milliseconds, sampled statements taking at least this long are logged.
+     */
+    long getThreshold();
+
+    void setThreshold(long threshold);
+
+    /**
+     * @return one in this many statements is timed.
+     */
+    int getSampleRate();
+
+    void setSampleRate(int sampleRate);
+
+    long getSampledCount();
+
+    long getSlowQueryCount();
+
+    /**
+     * @return the most recent slow queries, most recent first.
+     */
+    SlowQuery[] getSlowQueries();
+
+    void clear();
+}
@@ -18,12 +18,16 @@
 package org.codehaus.griffon.runtime.mybatis.monitor;
 
 import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
 import griffon.core.env.Metadata;
 import org.codehaus.griffon.runtime.monitor.AbstractMBeanRegistration;
 import org.codehaus.griffon.runtime.mybatis.RecordingSqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.pool.StatementCachingDataSource;
 
 import javax.management.MBeanServer;
 import javax.management.ObjectName;
+import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Objects.requireNonNull;
 
@@ -52,9 +56,73 @@ public class SqlSessionFactoryMonitor extends AbstractMBeanRegistration implemen
         super.postDeregister();
     }
 
-
     @Override
     public int getSessionCount() {
         return delegate.getSessionCount();
     }
+
+    @Override
+    public long getOldestSessionAge() {
+        return delegate.getOldestSessionAge(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getSessionHoldTimeP50() {
+        return delegate.getSessionHoldTimeAtPercentile(50d, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getSessionHoldTimeP90() {
+        return delegate.getSessionHoldTimeAtPercentile(90d, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getSessionHoldTimeP99() {
+        return delegate.getSessionHoldTimeAtPercentile(99d, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long getLeakThreshold() {
+        return delegate.getLeakThreshold(TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void setLeakThreshold(long leakThreshold) {
+        delegate.setLeakThreshold(leakThreshold, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String[] getLeakReport() {
+        return delegate.getLeakReport().toArray(new String[0]);
+    }
+
+    @Override
+    public long getPreparedStatementCount() {
+        StatementCachingDataSource statementCache = getStatementCache();
+        return statementCache != null ? statementCache.getPrepareCount() : 0L;
+    }
+
+    @Override
+    public long getReusedStatementCount() {
+        StatementCachingDataSource statementCache = getStatementCache();
+        return statementCache != null ? statementCache.getReuseCount() : 0L;
+    }
+
+    @Override
+    public double getStatementReuseRatio() {
+        StatementCachingDataSource statementCache = getStatementCache();
+        return statementCache != null ? statementCache.getReuseRatio() : 0d;
+    }
+
+    @Override
+    public int getCachedStatementCount() {
+        StatementCachingDataSource statementCache = getStatementCache();
+        return statementCache != null ? statementCache.getSize() : 0;
+    }
+
+    @Nullable
+    private StatementCachingDataSource getStatementCache() {
+        DataSource dataSource = delegate.getConfiguration().getEnvironment().getDataSource();
+        return dataSource instanceof StatementCachingDataSource ? (StatementCachingDataSource) dataSource : null;
+    }
 }
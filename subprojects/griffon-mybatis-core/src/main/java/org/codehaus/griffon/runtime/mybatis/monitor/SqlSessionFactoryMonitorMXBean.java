@@ -23,4 +23,44 @@ package org.codehaus.griffon.runtime.mybatis.monitor;
  */
 public interface SqlSessionFactoryMonitorMXBean {
     int getSessionCount();
+
+    /**
+     * @return age of the oldest open session in milliseconds.
+     */
+    long getOldestSessionAge();
+
+    long getSessionHoldTimeP50();
+
+    long getSessionHoldTimeP90();
+
+    long getSessionHoldTimeP99();
+
+    /**
+     * @return threshold in milliseconds after which sessions are reported as leaked, {@code 0} if disabled.
+     */
+    long getLeakThreshold();
+
+    void setLeakThreshold(long leakThreshold);
+
+    String[] getLeakReport();
+
+    /**
+     * @return number of statements prepared by the driver while the statement cache is enabled.
+     */
+    long getPreparedStatementCount();
+
+    /**
+     * @return number of statements served by the statement cache instead of being prepared again.
+     */
+    long getReusedStatementCount();
+
+    /**
+     * @return ratio of statements served by the statement cache, {@code 0} if disabled.
+     */
+    double getStatementReuseRatio();
+
+    /**
+     * @return number of idle statements kept open by the statement cache.
+     */
+    int getCachedStatementCount();
 }
@@ -0,0 +1,102 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import griffon.annotations.core.Nonnull;
+import griffon.core.env.Metadata;
+import org.codehaus.griffon.runtime.monitor.AbstractMBeanRegistration;
+import org.codehaus.griffon.runtime.mybatis.RecordingSqlSessionFactory;
+import org.codehaus.griffon.runtime.mybatis.StatementMetrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SqlStatementMonitor extends AbstractMBeanRegistration implements SqlStatementMonitorMXBean {
+    private RecordingSqlSessionFactory delegate;
+    private final String name;
+
+    public SqlStatementMonitor(@Nonnull Metadata metadata, @Nonnull RecordingSqlSessionFactory delegate, @Nonnull String name) {
+        super(metadata);
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.name = name;
+    }
+
+    @Override
+    public ObjectName preRegister(MBeanServer server, ObjectName name) throws Exception {
+        return new ObjectName("griffon.plugins.mybatis:type=SqlStatements,application=" + metadata.getApplicationName() + ",name=" + this.name);
+    }
+
+    @Override
+    public void postDeregister() {
+        delegate = null;
+        super.postDeregister();
+    }
+
+    @Override
+    public StatementStatistics[] getStatements() {
+        List<StatementMetrics> metrics = new ArrayList<>(delegate.getStatementMetrics());
+        metrics.sort(comparingLong((StatementMetrics m) -> m.getTotalTime(TimeUnit.NANOSECONDS)).reversed());
+
+        StatementStatistics[] statistics = new StatementStatistics[metrics.size()];
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i] = toStatistics(metrics.get(i));
+        }
+        return statistics;
+    }
+
+    @Override
+    public StatementStatistics getStatement(String statementId) {
+        StatementMetrics metrics = delegate.getStatementMetrics(statementId);
+        return metrics != null ? toStatistics(metrics) : null;
+    }
+
+    @Override
+    public void reset() {
+        delegate.resetStatementMetrics();
+    }
+
+    @Nonnull
+    private static StatementStatistics toStatistics(@Nonnull StatementMetrics metrics) {
+        long count = metrics.getCount();
+        double total = toMillis(metrics.getTotalTime(TimeUnit.MICROSECONDS));
+        return new StatementStatistics(
+            metrics.getStatementId(),
+            count,
+            metrics.getErrorCount(),
+            count > 0 ? total / count : 0d,
+            toMillis(metrics.getMaxTime(TimeUnit.MICROSECONDS)),
+            toMillis(metrics.getTimeAtPercentile(50d, TimeUnit.MICROSECONDS)),
+            toMillis(metrics.getTimeAtPercentile(90d, TimeUnit.MICROSECONDS)),
+            toMillis(metrics.getTimeAtPercentile(99d, TimeUnit.MICROSECONDS)),
+            toMillis(metrics.getTimeAtPercentile(99.9d, TimeUnit.MICROSECONDS)));
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000d;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.monitor;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class StatementStatistics {
+    private final String statementId;
+    private final long count;
+    private final long errorCount;
+    private final double meanMillis;
+    private final double maxMillis;
+    private final double p50Millis;
+    private final double p90Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+
+    @ConstructorProperties({"statementId", "count", "errorCount", "meanMillis", "maxMillis", "p50Millis", "p90Millis", "p99Millis", "p999Millis"})
+    public StatementStatistics(String statementId, long count, long errorCount, double meanMillis, double maxMillis, double p50Millis, double p90Millis, double p99Millis, double p999Millis) {
+        this.statementId = statementId;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.meanMillis = meanMillis;
+        this.maxMillis = maxMillis;
+        this.p50Millis = p50Millis;
+        this.p90Millis = p90Millis;
+        this.p99Millis = p99Millis;
+        this.p999Millis = p999Millis;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP90Millis() {
+        return p90Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.pool;
+
+import griffon.annotations.core.Nonnull;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+
+/**
+ * Reads the state of a Hikari pool without requiring Hikari in the classpath.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+final class HikariPoolProbe {
+    private static final String HIKARI_DATASOURCE = "com.zaxxer.hikari.HikariDataSource";
+
+    private HikariPoolProbe() {
+        // prevent instantiation
+    }
+
+    static int getIdleConnections(@Nonnull DataSource dataSource) {
+        Class<?> type = dataSource.getClass();
+        if (!HIKARI_DATASOURCE.equals(type.getName())) {
+            return -1;
+        }
+
+        try {
+            Method getHikariPoolMXBean = type.getMethod("getHikariPoolMXBean");
+            Object pool = getHikariPoolMXBean.invoke(dataSource);
+            if (pool == null) {
+                // the pool starts with the first connection request
+                return 0;
+            }
+            Class<?> poolMXBeanType = getHikariPoolMXBean.getReturnType();
+            return ((Number) poolMXBeanType.getMethod("getIdleConnections").invoke(pool)).intValue();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
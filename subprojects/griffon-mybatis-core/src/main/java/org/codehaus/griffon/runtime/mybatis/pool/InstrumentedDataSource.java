@@ -0,0 +1,265 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.pool;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.codehaus.griffon.runtime.mybatis.LatencyHistogram;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tracks the connections a session factory borrows from its datasource: how many are in use, how long it takes to
+ * obtain them and how often the pool fails to hand one out in time. Idle connections are read from the pool itself
+ * when it's either a MyBatis {@code PooledDataSource} or a Hikari pool.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class InstrumentedDataSource implements DataSource {
+    private final DataSource delegate;
+    private final int maximumPoolSize;
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicInteger peakActiveConnections = new AtomicInteger();
+    private final AtomicInteger pendingAcquisitions = new AtomicInteger();
+    private final LongAdder acquisitionCount = new LongAdder();
+    private final LongAdder acquisitionTimeoutCount = new LongAdder();
+    private final LongAdder acquisitionFailureCount = new LongAdder();
+    // microseconds
+    private final LatencyHistogram waitTimes = new LatencyHistogram();
+    private final AtomicBoolean exhausted = new AtomicBoolean();
+    private volatile PoolExhaustionListener poolExhaustionListener;
+
+    /**
+     * @param delegate        the datasource to be instrumented
+     * @param maximumPoolSize the size of the pool behind the datasource, {@code 0} if unbounded or unknown
+     */
+    public InstrumentedDataSource(@Nonnull DataSource delegate, int maximumPoolSize) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.maximumPoolSize = Math.max(0, maximumPoolSize);
+    }
+
+    @Nonnull
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    public int getPeakActiveConnections() {
+        return peakActiveConnections.get();
+    }
+
+    /**
+     * @return the number of threads currently waiting for a connection.
+     */
+    public int getPendingAcquisitions() {
+        return pendingAcquisitions.get();
+    }
+
+    /**
+     * @return the number of idle connections in the pool, {@code -1} if the pool does not disclose it.
+     */
+    public int getIdleConnections() {
+        if (delegate instanceof PooledDataSource) {
+            return ((PooledDataSource) delegate).getPoolState().getIdleConnectionCount();
+        }
+        return HikariPoolProbe.getIdleConnections(delegate);
+    }
+
+    public long getAcquisitionCount() {
+        return acquisitionCount.sum();
+    }
+
+    public long getAcquisitionTimeoutCount() {
+        return acquisitionTimeoutCount.sum();
+    }
+
+    public long getAcquisitionFailureCount() {
+        return acquisitionFailureCount.sum();
+    }
+
+    public long getWaitTimeAtPercentile(double percentile, @Nonnull TimeUnit unit) {
+        return unit.convert(waitTimes.getValueAtPercentile(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    public boolean isExhausted() {
+        return exhausted.get();
+    }
+
+    public void setPoolExhaustionListener(@Nullable PoolExhaustionListener poolExhaustionListener) {
+        this.poolExhaustionListener = poolExhaustionListener;
+    }
+
+    public void resetStatistics() {
+        peakActiveConnections.set(activeConnections.get());
+        acquisitionCount.reset();
+        acquisitionTimeoutCount.reset();
+        acquisitionFailureCount.reset();
+        waitTimes.reset();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return acquire(null, null);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return acquire(username, password);
+    }
+
+    @Nonnull
+    private Connection acquire(@Nullable String username, @Nullable String password) throws SQLException {
+        pendingAcquisitions.incrementAndGet();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = username != null ? delegate.getConnection(username, password) : delegate.getConnection();
+        } catch (SQLTimeoutException | SQLTransientConnectionException e) {
+            long waitTime = recordWaitTime(start);
+            acquisitionTimeoutCount.increment();
+            notifyExhaustion(waitTime, true);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            recordWaitTime(start);
+            acquisitionFailureCount.increment();
+            throw e;
+        } finally {
+            pendingAcquisitions.decrementAndGet();
+        }
+
+        long waitTime = recordWaitTime(start);
+        acquisitionCount.increment();
+        int active = activeConnections.incrementAndGet();
+        peakActiveConnections.accumulateAndGet(active, Math::max);
+        // reported once per episode, until connections are returned
+        if (maximumPoolSize > 0 && active >= maximumPoolSize && exhausted.compareAndSet(false, true)) {
+            notifyExhaustion(waitTime, false);
+        }
+        return new TrackedConnection(connection);
+    }
+
+    private void release() {
+        int active = activeConnections.decrementAndGet();
+        if (active < maximumPoolSize && exhausted.get()) {
+            exhausted.set(false);
+        }
+    }
+
+    private long recordWaitTime(long start) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        waitTimes.record(micros);
+        return TimeUnit.MICROSECONDS.toMillis(micros);
+    }
+
+    private void notifyExhaustion(long waitTime, boolean timedOut) {
+        PoolExhaustionListener listener = poolExhaustionListener;
+        if (listener != null) {
+            listener.poolExhausted(activeConnections.get(), pendingAcquisitions.get(), waitTime, timedOut);
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    private final class TrackedConnection extends DelegatingConnection {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private TrackedConnection(@Nonnull Connection connection) {
+            super(connection);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+            super.close();
+        }
+    }
+
+    /**
+     * @since 3.0.0
+     */
+    @FunctionalInterface
+    public interface PoolExhaustionListener {
+        /**
+         * @param activeConnections   connections in use when the pool ran out
+         * @param pendingAcquisitions threads waiting for a connection
+         * @param waitTime            how long the last acquisition waited, in milliseconds
+         * @param timedOut            whether the last acquisition gave up waiting
+         */
+        void poolExhausted(int activeConnections, int pendingAcquisitions, long waitTime, boolean timedOut);
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.pool;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps the prepared statements of each physical connection open once they are closed, so that sessions borrowing the
+ * same connection later on reuse them instead of preparing them again. Statements are prepared on the connection
+ * behind the pool's own wrapper, as pools close every statement when a connection is returned. Pools therefore don't
+ * see these statements: Hikari, for one, no longer knows whether a connection carries uncommitted work, thus a
+ * connection whose cached statements executed since its last commit or rollback is rolled back here before it's
+ * returned, unless it's in autocommit mode. Each connection keeps at most {@code maximumSize} statements, evicting the
+ * least recently used one.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class StatementCachingDataSource implements DataSource {
+    private static final String ERROR_STATEMENT_CLOSED = "Statement is closed";
+
+    private final DataSource delegate;
+    private final int maximumSize;
+    private final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+    private final LongAdder prepareCount = new LongAdder();
+    private final LongAdder reuseCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * @param delegate    the datasource whose statements should be cached
+     * @param maximumSize number of statements kept per connection
+     */
+    public StatementCachingDataSource(@Nonnull DataSource delegate, int maximumSize) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.maximumSize = Math.max(1, maximumSize);
+    }
+
+    @Nonnull
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of statements prepared by the driver.
+     */
+    public long getPrepareCount() {
+        return prepareCount.sum();
+    }
+
+    /**
+     * @return the number of statements served from the cache instead of being prepared again.
+     */
+    public long getReuseCount() {
+        return reuseCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * @return the ratio of statements served from the cache, {@code 0} if none were requested so far.
+     */
+    public double getReuseRatio() {
+        long reused = reuseCount.sum();
+        long total = reused + prepareCount.sum();
+        return total > 0 ? (double) reused / total : 0d;
+    }
+
+    /**
+     * @return the number of idle statements kept open across all connections.
+     */
+    public int getSize() {
+        int size = 0;
+        for (StatementCache cache : caches.values()) {
+            size += cache.size();
+        }
+        return size;
+    }
+
+    public void resetStatistics() {
+        prepareCount.reset();
+        reuseCount.reset();
+        evictionCount.reset();
+    }
+
+    /**
+     * Closes every idle statement.
+     */
+    public void clear() {
+        for (Iterator<StatementCache> it = caches.values().iterator(); it.hasNext(); ) {
+            StatementCache cache = it.next();
+            it.remove();
+            cache.clear();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(delegate.getConnection(username, password));
+    }
+
+    @Nonnull
+    private Connection wrap(@Nonnull Connection connection) {
+        Connection physical = null;
+        try {
+            physical = connection.unwrap(Connection.class);
+        } catch (SQLException e) {
+            // not a wrapper
+        }
+        if (physical == null) {
+            physical = connection;
+        }
+
+        StatementCache cache = caches.get(physical);
+        if (cache == null) {
+            // pools replace connections every now and then, caches of those already retired are no longer needed
+            evictClosedConnections();
+            cache = caches.computeIfAbsent(physical, StatementCache::new);
+        }
+        CachingConnection handler = new CachingConnection(connection, cache);
+        handler.proxy = (Connection) Proxy.newProxyInstance(StatementCachingDataSource.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, handler);
+        return handler.proxy;
+    }
+
+    private void evictClosedConnections() {
+        for (Iterator<Map.Entry<Connection, StatementCache>> it = caches.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Connection, StatementCache> entry = it.next();
+            if (isClosed(entry.getKey())) {
+                it.remove();
+                entry.getValue().clear();
+            }
+        }
+    }
+
+    private static boolean isClosed(@Nonnull Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(@Nonnull PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignored) {
+            // the connection may be gone already
+        }
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this) || delegate.isWrapperFor(iface);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    /**
+     * Idle statements of a single physical connection. Only the thread holding the connection touches it, other than
+     * when the connection is evicted.
+     */
+    private final class StatementCache {
+        private final Connection connection;
+        private final LinkedHashMap<StatementKey, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        private StatementCache(@Nonnull Connection connection) {
+            this.connection = connection;
+        }
+
+        @Nonnull
+        private CachedStatement borrow(@Nonnull Method method, @Nonnull Object[] args) throws Throwable {
+            StatementKey key = new StatementKey(method, args);
+            CachedStatement cached;
+            synchronized (this) {
+                cached = statements.remove(key);
+            }
+            if (cached != null && !cached.statement.isClosed()) {
+                reuseCount.increment();
+                return cached;
+            }
+
+            PreparedStatement statement;
+            try {
+                statement = (PreparedStatement) method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            prepareCount.increment();
+            return new CachedStatement(key, statement);
+        }
+
+        private void release(@Nonnull CachedStatement cached) {
+            List<PreparedStatement> discarded = new ArrayList<>(1);
+            synchronized (this) {
+                if (statements.containsKey(cached.key)) {
+                    // the same statement was prepared twice by one session
+                    discarded.add(cached.statement);
+                } else {
+                    statements.put(cached.key, cached);
+                    if (statements.size() > maximumSize) {
+                        Iterator<CachedStatement> it = statements.values().iterator();
+                        discarded.add(it.next().statement);
+                        it.remove();
+                        evictionCount.increment();
+                    }
+                }
+            }
+            for (PreparedStatement statement : discarded) {
+                closeQuietly(statement);
+            }
+        }
+
+        private synchronized int size() {
+            return statements.size();
+        }
+
+        private void clear() {
+            List<CachedStatement> discarded;
+            synchronized (this) {
+                discarded = new ArrayList<>(statements.values());
+                statements.clear();
+            }
+            for (CachedStatement cached : discarded) {
+                closeQuietly(cached.statement);
+            }
+        }
+    }
+
+    private static final class StatementKey {
+        private final String method;
+        private final Object[] args;
+        private final int hashCode;
+
+        private StatementKey(@Nonnull Method method, @Nonnull Object[] args) {
+            // prepareStatement overloads differ by parameter count or types, but never both
+            this.method = method.getName() + method.getParameterCount();
+            this.args = args;
+            this.hashCode = 31 * this.method.hashCode() + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StatementKey)) return false;
+            StatementKey that = (StatementKey) o;
+            return hashCode == that.hashCode && method.equals(that.method) && Arrays.deepEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class CachedStatement {
+        private final StatementKey key;
+        private final PreparedStatement statement;
+        private final int fetchSize;
+        private final int queryTimeout;
+        private final int maxRows;
+        private final int maxFieldSize;
+
+        private CachedStatement(@Nonnull StatementKey key, @Nonnull PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.fetchSize = statement.getFetchSize();
+            this.queryTimeout = statement.getQueryTimeout();
+            this.maxRows = statement.getMaxRows();
+            this.maxFieldSize = statement.getMaxFieldSize();
+        }
+
+        /**
+         * @return {@code true} if the statement can be handed out again
+         */
+        private boolean reset(boolean batched, boolean modified) {
+            try {
+                if (statement.isClosed()) {
+                    return false;
+                }
+                statement.clearParameters();
+                if (batched) {
+                    statement.clearBatch();
+                }
+                if (modified) {
+                    statement.setFetchSize(fetchSize);
+                    statement.setQueryTimeout(queryTimeout);
+                    statement.setMaxRows(maxRows);
+                    statement.setMaxFieldSize(maxFieldSize);
+                }
+                return true;
+            } catch (SQLException e) {
+                closeQuietly(statement);
+                return false;
+            }
+        }
+    }
+
+    private final class CachingConnection implements InvocationHandler {
+        private final Connection connection;
+        private final StatementCache cache;
+        private Connection proxy;
+        // whether cached statements executed since the last commit or rollback
+        private boolean dirty;
+
+        private CachingConnection(@Nonnull Connection connection, @Nonnull StatementCache cache) {
+            this.connection = connection;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    CachedStatement cached = cache.borrow(method, args);
+                    return Proxy.newProxyInstance(StatementCachingDataSource.class.getClassLoader(),
+                        new Class<?>[]{PreparedStatement.class}, new LeasedStatement(cached, cache, this));
+                case "close":
+                    rollbackIfDirty();
+                    break;
+                default:
+                    break;
+            }
+            try {
+                Object result = method.invoke(connection, args);
+                if ("commit".equals(method.getName()) || ("rollback".equals(method.getName()) && method.getParameterCount() == 0)) {
+                    dirty = false;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void rollbackIfDirty() {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            try {
+                if (!connection.isClosed() && !connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+            } catch (SQLException e) {
+                // the pool discards connections that fail
+            }
+        }
+    }
+
+    private static final class LeasedStatement implements InvocationHandler {
+        private final CachedStatement cached;
+        private final StatementCache cache;
+        private final CachingConnection connection;
+        private boolean closed;
+        private boolean batched;
+        private boolean modified;
+
+        private LeasedStatement(@Nonnull CachedStatement cached, @Nonnull StatementCache cache, @Nonnull CachingConnection connection) {
+            this.cached = cached;
+            this.cache = cache;
+            this.connection = connection;
+        }
+
+        @Nullable
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (cached.reset(batched, modified)) {
+                            cache.release(cached);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || cached.statement.isClosed();
+                case "getConnection":
+                    return connection.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return cached.statement.toString();
+                case "setFetchSize":
+                case "setQueryTimeout":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setMaxFieldSize":
+                    modified = true;
+                    break;
+                case "addBatch":
+                    batched = true;
+                    break;
+                case "executeBatch":
+                case "executeLargeBatch":
+                    batched = false;
+                    connection.dirty = true;
+                    break;
+                case "clearBatch":
+                    batched = false;
+                    break;
+                case "execute":
+                case "executeQuery":
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                    connection.dirty = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException(ERROR_STATEMENT_CLOSED);
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
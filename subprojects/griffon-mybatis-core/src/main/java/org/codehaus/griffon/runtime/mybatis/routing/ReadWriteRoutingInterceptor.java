@@ -0,0 +1,67 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.routing;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * Flags select statements as reads on the session's {@code RoutingTransaction}. Selects with
+ * {@code flushCache="true"} (such as {@code SELECT ... FOR UPDATE}) are considered writes.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+    @Signature(type = Executor.class, method = "query", args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+    @Signature(type = Executor.class, method = "queryCursor", args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class ReadWriteRoutingInterceptor implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        RoutingTransaction transaction = (RoutingTransaction) ((Executor) invocation.getTarget()).getTransaction();
+        MappedStatement ms = (MappedStatement) invocation.getArgs()[0];
+        boolean read = ms.getSqlCommandType() == SqlCommandType.SELECT && !ms.isFlushCacheRequired();
+        RoutingTransaction.Access previous = transaction.setAccess(read ? RoutingTransaction.Access.READ : RoutingTransaction.Access.WRITE);
+        try {
+            return invocation.proceed();
+        } finally {
+            transaction.setAccess(previous);
+        }
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof Executor && ((Executor) target).getTransaction() instanceof RoutingTransaction) {
+            return Plugin.wrap(target, this);
+        }
+        return target;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.routing;
+
+import griffon.annotations.core.Nonnull;
+
+import javax.sql.DataSource;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A replica datasource along with the number of sessions currently reading from it.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class Replica {
+    private final String name;
+    private final DataSource dataSource;
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private final AtomicLong useCount = new AtomicLong();
+
+    public Replica(@Nonnull String name, @Nonnull DataSource dataSource) {
+        this.name = requireNonBlank(name, "Argument 'name' must not be blank");
+        this.dataSource = requireNonNull(dataSource, "Argument 'dataSource' must not be null");
+    }
+
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    @Nonnull
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * @return the number of sessions holding a connection to this replica.
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return the number of sessions that have read from this replica so far.
+     */
+    public long getUseCount() {
+        return useCount.get();
+    }
+
+    void acquired() {
+        activeCount.incrementAndGet();
+        useCount.incrementAndGet();
+    }
+
+    void released() {
+        activeCount.decrementAndGet();
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.routing;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A transaction spanning the primary datasource and, lazily, one replica. Statements flagged as reads by
+ * {@code ReadWriteRoutingInterceptor} use the replica; writes, as well as connections requested outside of any
+ * statement, use the primary. Once a write happens in a session that does not autocommit, every following statement
+ * of that session uses the primary as well, so that the transaction sees its own changes. Sessions that autocommit
+ * keep on reading from the replica, thus they may not see their own writes until the replica catches up. Read-only
+ * transactions flag every connection they open, whether primary or replica, and clear the flag before closing it.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class RoutingTransaction implements Transaction {
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingTransaction.class);
+
+    /**
+     * What the statement being executed does, as flagged by {@code ReadWriteRoutingInterceptor}.
+     */
+    enum Access {
+        NONE,
+        READ,
+        WRITE
+    }
+
+    private final RoutingTransactionFactory factory;
+    private final Transaction primary;
+    private final TransactionIsolationLevel level;
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private Replica replica;
+    private Transaction replicaTransaction;
+    private Connection readOnlyPrimary;
+    private Connection readOnlyReplica;
+    private Access access = Access.NONE;
+    private boolean sticky;
+
+    RoutingTransaction(@Nonnull RoutingTransactionFactory factory, @Nonnull Transaction primary, @Nullable TransactionIsolationLevel level, boolean autoCommit, boolean readOnly) {
+        this.factory = factory;
+        this.primary = primary;
+        this.level = level;
+        this.autoCommit = autoCommit;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Flags what the statement about to be executed does.
+     *
+     * @return the previous value of the flag
+     */
+    @Nonnull
+    Access setAccess(@Nonnull Access access) {
+        Access previous = this.access;
+        this.access = access;
+        return previous;
+    }
+
+    /**
+     * @return the replica used by this transaction, if any.
+     */
+    @Nullable
+    public Replica getReplica() {
+        return replica;
+    }
+
+    public boolean isSticky() {
+        return sticky;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (access == Access.READ && !sticky) {
+            Connection connection = getReplicaConnection();
+            if (connection != null) {
+                return connection;
+            }
+        } else if (access == Access.WRITE && !autoCommit) {
+            sticky = true;
+        }
+
+        Connection connection = primary.getConnection();
+        if (readOnly && readOnlyPrimary != connection) {
+            connection.setReadOnly(true);
+            readOnlyPrimary = connection;
+        }
+        return connection;
+    }
+
+    @Override
+    public void commit() throws SQLException {
+        try {
+            primary.commit();
+        } finally {
+            if (replicaTransaction != null) {
+                replicaTransaction.commit();
+            }
+        }
+    }
+
+    @Override
+    public void rollback() throws SQLException {
+        try {
+            primary.rollback();
+        } finally {
+            if (replicaTransaction != null) {
+                replicaTransaction.rollback();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            resetReadOnly(readOnlyPrimary);
+            readOnlyPrimary = null;
+            primary.close();
+        } finally {
+            if (replicaTransaction != null) {
+                try {
+                    resetReadOnly(readOnlyReplica);
+                    replicaTransaction.close();
+                } finally {
+                    readOnlyReplica = null;
+                    replicaTransaction = null;
+                    replica.released();
+                }
+            }
+        }
+    }
+
+    private static void resetReadOnly(@Nullable Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            // pooled connections are handed to other sessions next
+            connection.setReadOnly(false);
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Could not reset read-only flag of connection", e);
+        }
+    }
+
+    @Override
+    public Integer getTimeout() throws SQLException {
+        return primary.getTimeout();
+    }
+
+    @Nullable
+    private Connection getReplicaConnection() {
+        if (replicaTransaction == null) {
+            Replica selected = factory.selectReplica();
+            if (selected == null) {
+                return null;
+            }
+            replica = selected;
+            replica.acquired();
+            replicaTransaction = new JdbcTransaction(replica.getDataSource(), level, autoCommit);
+        }
+
+        try {
+            Connection connection = replicaTransaction.getConnection();
+            if (readOnly && readOnlyReplica != connection) {
+                connection.setReadOnly(true);
+                readOnlyReplica = connection;
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            LOG.warn("Could not connect to replica '{}', reading from primary instead", replica.getName(), e);
+            Transaction failed = replicaTransaction;
+            replicaTransaction = null;
+            replica.released();
+            // keep on using the primary for the rest of the session
+            sticky = true;
+            try {
+                failed.close();
+            } catch (SQLException | RuntimeException ignored) {
+                // the connection could not be opened in the first place
+            }
+            return null;
+        }
+    }
+}
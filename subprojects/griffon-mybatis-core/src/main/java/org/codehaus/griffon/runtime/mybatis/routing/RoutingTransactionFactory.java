@@ -0,0 +1,113 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.routing;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates transactions that read from one of several replicas and write to the primary datasource. Session factories
+ * with {@code read_only} enabled have every connection of their transactions flagged as read-only.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class RoutingTransactionFactory implements TransactionFactory {
+    public enum Balancing {
+        ROUND_ROBIN,
+        LEAST_LOADED;
+
+        @Nonnull
+        public static Balancing of(@Nonnull String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private final List<Replica> replicas;
+    private final Balancing balancing;
+    private final boolean readOnly;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public RoutingTransactionFactory(@Nonnull List<Replica> replicas, @Nonnull Balancing balancing) {
+        this(replicas, balancing, false);
+    }
+
+    public RoutingTransactionFactory(@Nonnull List<Replica> replicas, @Nonnull Balancing balancing, boolean readOnly) {
+        this.replicas = Collections.unmodifiableList(new ArrayList<>(requireNonNull(replicas, "Argument 'replicas' must not be null")));
+        this.balancing = requireNonNull(balancing, "Argument 'balancing' must not be null");
+        this.readOnly = readOnly;
+    }
+
+    @Nonnull
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public Transaction newTransaction(Connection connection) {
+        // sessions opened on a given connection are not routed
+        return new JdbcTransaction(connection);
+    }
+
+    @Override
+    public Transaction newTransaction(DataSource dataSource, TransactionIsolationLevel level, boolean autoCommit) {
+        return new RoutingTransaction(this, new JdbcTransaction(dataSource, level, autoCommit), level, autoCommit, readOnly);
+    }
+
+    /**
+     * @return the replica the next session should read from, or {@code null} if there are none.
+     */
+    Replica selectReplica() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        if (balancing == Balancing.LEAST_LOADED) {
+            // start from a rotating offset so that ties are spread evenly
+            int offset = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+            Replica selected = null;
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((offset + i) % size);
+                if (selected == null || replica.getActiveCount() < selected.getActiveCount()) {
+                    selected = replica;
+                }
+            }
+            return selected;
+        }
+
+        return replicas.get((next.getAndIncrement() & Integer.MAX_VALUE) % size);
+    }
+}
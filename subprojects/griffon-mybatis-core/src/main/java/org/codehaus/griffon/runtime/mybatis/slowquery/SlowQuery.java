@@ -0,0 +1,78 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.slowquery;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A statement that took longer than the slow query threshold.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SlowQuery {
+    private final long timestamp;
+    private final String statementId;
+    private final String sql;
+    private final String parameters;
+    private final long elapsedTime;
+    private final boolean failed;
+
+    @ConstructorProperties({"timestamp", "statementId", "sql", "parameters", "elapsedTime", "failed"})
+    public SlowQuery(long timestamp, String statementId, String sql, String parameters, long elapsedTime, boolean failed) {
+        this.timestamp = timestamp;
+        this.statementId = statementId;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.elapsedTime = elapsedTime;
+        this.failed = failed;
+    }
+
+    /**
+     * @return when the statement completed, in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return a summary of the parameter values, long values are abbreviated.
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return how long the statement took, in microseconds.
+     */
+    public long getElapsedTime() {
+        return elapsedTime;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+}
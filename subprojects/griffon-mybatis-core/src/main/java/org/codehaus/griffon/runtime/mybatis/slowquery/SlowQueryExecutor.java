@@ -0,0 +1,226 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.slowquery;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+import org.codehaus.griffon.runtime.mybatis.ParameterResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Times sampled queries and updates, recording those that exceed the threshold of the slow query log. Statements
+ * that are not sampled are forwarded as is.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SlowQueryExecutor implements Executor {
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryExecutor.class);
+    private static final int MAX_PARAMETERS = 10;
+    private static final int MAX_VALUE_LENGTH = 32;
+
+    private final Executor delegate;
+    private final String sessionFactoryName;
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryExecutor(@Nonnull Executor delegate, @Nonnull String sessionFactoryName, @Nonnull SlowQueryLog slowQueryLog) {
+        this.delegate = requireNonNull(delegate, "Argument 'delegate' must not be null");
+        this.sessionFactoryName = requireNonNull(sessionFactoryName, "Argument 'sessionFactoryName' must not be null");
+        this.slowQueryLog = requireNonNull(slowQueryLog, "Argument 'slowQueryLog' must not be null");
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter) throws SQLException {
+        if (!slowQueryLog.sample()) {
+            return delegate.update(ms, parameter);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            int result = delegate.update(ms, parameter);
+            failed = false;
+            return result;
+        } finally {
+            check(ms, parameter, null, start, failed);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql) throws SQLException {
+        if (!slowQueryLog.sample()) {
+            return delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<E> result = delegate.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+            failed = false;
+            return result;
+        } finally {
+            check(ms, parameter, boundSql, start, failed);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+        if (!slowQueryLog.sample()) {
+            return delegate.query(ms, parameter, rowBounds, resultHandler);
+        }
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            List<E> result = delegate.query(ms, parameter, rowBounds, resultHandler);
+            failed = false;
+            return result;
+        } finally {
+            check(ms, parameter, null, start, failed);
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+        // rows are fetched while the cursor is consumed, only the time taken to open it could be measured here
+        return delegate.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public List<BatchResult> flushStatements() throws SQLException {
+        return delegate.flushStatements();
+    }
+
+    @Override
+    public void commit(boolean required) throws SQLException {
+        delegate.commit(required);
+    }
+
+    @Override
+    public void rollback(boolean required) throws SQLException {
+        delegate.rollback(required);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+        return delegate.createCacheKey(ms, parameterObject, rowBounds, boundSql);
+    }
+
+    @Override
+    public boolean isCached(MappedStatement ms, CacheKey key) {
+        return delegate.isCached(ms, key);
+    }
+
+    @Override
+    public void clearLocalCache() {
+        delegate.clearLocalCache();
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+        delegate.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return delegate.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback) {
+        delegate.close(forceRollback);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setExecutorWrapper(Executor executor) {
+        throw new UnsupportedOperationException("This method should not be called");
+    }
+
+    private void check(@Nonnull MappedStatement ms, @Nullable Object parameter, @Nullable BoundSql boundSql, long start, boolean failed) {
+        long elapsed = System.nanoTime() - start;
+        if (!slowQueryLog.isSlow(elapsed)) {
+            return;
+        }
+
+        // the cost of describing the statement is paid by slow statements only
+        String sql;
+        String parameters;
+        try {
+            BoundSql bound = boundSql != null ? boundSql : ms.getBoundSql(parameter);
+            sql = bound.getSql().replaceAll("\\s+", " ").trim();
+            parameters = summarize(ms.getConfiguration(), bound);
+        } catch (RuntimeException e) {
+            sql = "?";
+            parameters = "?";
+        }
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsed);
+        LOG.warn("Slow statement {} on mybatis '{}' took {} ms{}: {} {}", ms.getId(), sessionFactoryName,
+            TimeUnit.MICROSECONDS.toMillis(micros), failed ? " and failed" : "", sql, parameters);
+        slowQueryLog.record(new SlowQuery(System.currentTimeMillis(), ms.getId(), sql, parameters, micros, failed));
+    }
+
+    @Nonnull
+    private static String summarize(@Nonnull Configuration configuration, @Nonnull BoundSql boundSql) {
+        ParameterResolver parameterResolver = new ParameterResolver(configuration, boundSql);
+        StringBuilder b = new StringBuilder("[");
+        int count = 0;
+        for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            if (count == MAX_PARAMETERS) {
+                b.append(", ...");
+                break;
+            }
+
+            if (count++ > 0) {
+                b.append(", ");
+            }
+            b.append(parameterMapping.getProperty()).append('=').append(abbreviate(parameterResolver.resolve(parameterMapping)));
+        }
+        return b.append(']').toString();
+    }
+
+    @Nonnull
+    private static String abbreviate(@Nullable Object value) {
+        String text = String.valueOf(value);
+        return text.length() > MAX_VALUE_LENGTH ? text.substring(0, MAX_VALUE_LENGTH) + "..." : text;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.slowquery;
+
+import griffon.annotations.core.Nonnull;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+
+import static griffon.util.GriffonNameUtils.requireNonBlank;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decorates every executor of a session factory with a {@code SlowQueryExecutor}.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SlowQueryInterceptor implements Interceptor {
+    private final String sessionFactoryName;
+    private final SlowQueryLog slowQueryLog;
+
+    public SlowQueryInterceptor(@Nonnull String sessionFactoryName, @Nonnull SlowQueryLog slowQueryLog) {
+        this.sessionFactoryName = requireNonBlank(sessionFactoryName, "Argument 'sessionFactoryName' must not be blank");
+        this.slowQueryLog = requireNonNull(slowQueryLog, "Argument 'slowQueryLog' must not be null");
+    }
+
+    @Nonnull
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+        return target instanceof Executor ? new SlowQueryExecutor((Executor) target, sessionFactoryName, slowQueryLog) : target;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.runtime.mybatis.slowquery;
+
+import griffon.annotations.core.Nonnull;
+import griffon.annotations.core.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static griffon.util.ConfigUtils.getConfigValueAsInt;
+import static griffon.util.ConfigUtils.getConfigValueAsLong;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Settings of the slow query log of a session factory, along with the most recent slow queries.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+public class SlowQueryLog {
+    public static final String KEY_SLOW_QUERY_THRESHOLD = "slow_query_threshold";
+    public static final String KEY_SLOW_QUERY_SAMPLE_RATE = "slow_query_sample_rate";
+    public static final String KEY_SLOW_QUERY_LOG_SIZE = "slow_query_log_size";
+
+    private static final int DEFAULT_LOG_SIZE = 100;
+
+    private final AtomicReferenceArray<SlowQuery> entries;
+    private final AtomicLong nextEntry = new AtomicLong();
+    private final LongAdder sampledCount = new LongAdder();
+    private final LongAdder slowQueryCount = new LongAdder();
+    private volatile long threshold;
+    private volatile int sampleRate;
+
+    public SlowQueryLog(long threshold, @Nonnull TimeUnit unit, int sampleRate, int size) {
+        setThreshold(threshold, unit);
+        setSampleRate(sampleRate);
+        this.entries = new AtomicReferenceArray<>(Math.max(1, size));
+    }
+
+    /**
+     * @return a slow query log configured by the given session factory settings, or {@code null} if disabled.
+     */
+    @Nullable
+    public static SlowQueryLog of(@Nonnull Map<String, Object> config) {
+        requireNonNull(config, "Argument 'config' must not be null");
+        long threshold = getConfigValueAsLong(config, KEY_SLOW_QUERY_THRESHOLD, 0L);
+        if (threshold <= 0) {
+            return null;
+        }
+        return new SlowQueryLog(threshold, TimeUnit.MILLISECONDS,
+            getConfigValueAsInt(config, KEY_SLOW_QUERY_SAMPLE_RATE, 1),
+            getConfigValueAsInt(config, KEY_SLOW_QUERY_LOG_SIZE, DEFAULT_LOG_SIZE));
+    }
+
+    public long getThreshold(@Nonnull TimeUnit unit) {
+        return unit.convert(threshold, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param threshold statements taking at least this long are logged, {@code 0} logs every sampled statement
+     */
+    public void setThreshold(long threshold, @Nonnull TimeUnit unit) {
+        this.threshold = unit.toNanos(Math.max(0, threshold));
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate one in this many statements is timed, {@code 1} times them all
+     */
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    public int getSize() {
+        return entries.length();
+    }
+
+    /**
+     * Decides whether the next statement should be timed.
+     */
+    public boolean sample() {
+        int rate = sampleRate;
+        if (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return false;
+        }
+        sampledCount.increment();
+        return true;
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= threshold;
+    }
+
+    public void record(@Nonnull SlowQuery slowQuery) {
+        requireNonNull(slowQuery, "Argument 'slowQuery' must not be null");
+        slowQueryCount.increment();
+        entries.set((int) (nextEntry.getAndIncrement() % entries.length()), slowQuery);
+    }
+
+    public long getSampledCount() {
+        return sampledCount.sum();
+    }
+
+    public long getSlowQueryCount() {
+        return slowQueryCount.sum();
+    }
+
+    /**
+     * @return the slow queries kept so far, most recent first.
+     */
+    @Nonnull
+    public List<SlowQuery> getSlowQueries() {
+        int size = entries.length();
+        long last = nextEntry.get() - 1;
+        List<SlowQuery> slowQueries = new ArrayList<>(size);
+        for (long i = last; i >= 0 && i > last - size; i--) {
+            SlowQuery slowQuery = entries.get((int) (i % size));
+            if (slowQuery != null) {
+                slowQueries.add(slowQuery);
+            }
+        }
+        return slowQueries;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, null);
+        }
+        sampledCount.reset();
+        slowQueryCount.reset();
+    }
+}
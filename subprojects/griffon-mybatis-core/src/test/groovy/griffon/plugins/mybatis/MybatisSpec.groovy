@@ -18,7 +18,14 @@
 package griffon.plugins.mybatis
 
 import griffon.annotations.inject.BindTo
+import griffon.core.ApplicationClassLoader
 import griffon.core.GriffonApplication
+import griffon.core.events.DestroyMVCGroupEvent
+import griffon.core.events.InitializeMVCGroupEvent
+import griffon.core.mvc.MVCGroup
+import griffon.core.mvc.MVCGroupConfiguration
+import griffon.exceptions.GriffonException
+import griffon.plugins.datasource.DataSourceStorage
 import griffon.plugins.datasource.events.DataSourceConnectEndEvent
 import griffon.plugins.datasource.events.DataSourceConnectStartEvent
 import griffon.plugins.datasource.events.DataSourceDisconnectEndEvent
@@ -27,16 +34,65 @@ import griffon.plugins.mybatis.events.MybatisConnectEndEvent
 import griffon.plugins.mybatis.events.MybatisConnectStartEvent
 import griffon.plugins.mybatis.events.MybatisDisconnectEndEvent
 import griffon.plugins.mybatis.events.MybatisDisconnectStartEvent
+import griffon.plugins.mybatis.events.MybatisPoolExhaustedEvent
+import griffon.plugins.mybatis.events.MybatisSessionLeakEvent
 import griffon.plugins.mybatis.exceptions.RuntimeMybatisException
 import griffon.plugins.mybatis.mappers.PersonMapper
 import griffon.test.core.GriffonUnitRule
+import org.apache.ibatis.builder.StaticSqlSource
+import org.apache.ibatis.cache.CacheKey
+import org.apache.ibatis.cursor.Cursor
+import org.apache.ibatis.executor.BatchResult
+import org.apache.ibatis.executor.Executor
+import org.apache.ibatis.mapping.Environment
+import org.apache.ibatis.mapping.MappedStatement
+import org.apache.ibatis.mapping.SqlCommandType
+import org.apache.ibatis.mapping.SqlSource
+import org.apache.ibatis.session.Configuration
+import org.apache.ibatis.session.ExecutorType
+import org.apache.ibatis.session.RowBounds
 import org.apache.ibatis.session.SqlSession
+import org.apache.ibatis.session.SqlSessionFactoryBuilder
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisExecutorProvider
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisMapperRegistry
+import org.codehaus.griffon.runtime.mybatis.GatedExecutorService
+import org.codehaus.griffon.runtime.mybatis.LinkedSqlSession
+import org.codehaus.griffon.runtime.mybatis.MybatisAddon
+import org.codehaus.griffon.runtime.mybatis.RecordingSqlSessionFactory
+import org.codehaus.griffon.runtime.mybatis.StatementMetrics
+import org.codehaus.griffon.runtime.mybatis.TrackingTransactionFactory
+import org.codehaus.griffon.runtime.mybatis.cache.BoundedCache
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCacheExecutor
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCacheInterceptor
+import org.codehaus.griffon.runtime.mybatis.cache.SecondLevelCaches
+import org.codehaus.griffon.runtime.mybatis.pool.InstrumentedDataSource
+import org.codehaus.griffon.runtime.mybatis.pool.StatementCachingDataSource
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQuery
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQueryInterceptor
+import org.codehaus.griffon.runtime.mybatis.slowquery.SlowQueryLog
 import org.junit.Rule
+import org.reactivestreams.Subscriber
+import org.reactivestreams.Subscription
+import spock.lang.IgnoreIf
+import spock.lang.Requires
 import spock.lang.Specification
 import spock.lang.Unroll
+import spock.util.concurrent.PollingConditions
 
 import javax.application.event.EventHandler
 import javax.inject.Inject
+import java.sql.Connection
+import java.sql.ResultSet
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Supplier
+import java.util.stream.Collectors
+import java.util.stream.Stream
 
 @Unroll
 class MybatisSpec extends Specification {
@@ -53,6 +109,24 @@ class MybatisSpec extends Specification {
     @Inject
     private GriffonApplication application
 
+    @Inject
+    private MybatisMapperRegistry mybatisMapperRegistry
+
+    @Inject
+    private MybatisStorage mybatisStorage
+
+    @Inject
+    private ReactiveMybatisHandler reactiveMybatisHandler
+
+    @Inject
+    private ShardedMybatisHandler shardedMybatisHandler
+
+    @Inject
+    private MybatisMemoRegistry mybatisMemoRegistry
+
+    @Inject
+    private DataSourceStorage dataSourceStorage
+
     void 'Open and close default mybatis'() {
         given:
         List eventNames = [
@@ -167,6 +241,918 @@ class MybatisSpec extends Specification {
         peopleIn == peopleOut
     }
 
+    void 'Statements are rolled back when a transactional callback fails'() {
+        when:
+        mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            throw new IllegalStateException('boom')
+        }
+
+        then:
+        thrown(RuntimeMybatisException)
+        0 == mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list().size()
+        }
+    }
+
+    void 'Nested calls join the session of the enclosing call'() {
+        when:
+        List<Boolean> shared = mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            [
+                mybatisHandler.withSqlSession('transactional') { String name, SqlSession inner -> inner.connection.is(session.connection) },
+                mybatisHandler.withSqlSession('transactional', Propagation.REQUIRES_NEW) { String name, SqlSession inner -> inner.connection.is(session.connection) },
+                mybatisHandler.withMapper('transactional', PersonMapper) { String name, PersonMapper mapper -> mapper.findPersonById(1) != null }
+            ]
+        }
+
+        then:
+        // the enclosing transaction has not been committed when the joined mapper reads the row
+        shared == [true, false, true]
+    }
+
+    void 'A failed nested call rolls back the enclosing transaction'() {
+        when:
+        mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            try {
+                mybatisHandler.withSqlSession('transactional') { String name, SqlSession inner ->
+                    inner.getMapper(PersonMapper).insert(new Person(id: 2))
+                }
+            } catch (RuntimeMybatisException ignored) {
+                // the enclosing call carries on
+            }
+        }
+
+        then:
+        thrown(RuntimeMybatisException)
+        0 == mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list().size()
+        }
+    }
+
+    void 'Nested #method calls on the same session factory are rejected'() {
+        given:
+        Map<String, Closure> calls = [
+            withBatchSqlSession: { mybatisHandler.withBatchSqlSession('transactional') { String name, SqlSession session -> } },
+            bulkInsert         : { mybatisHandler.bulkInsert('transactional', PersonMapper.name + '.insert', [new Person(id: 2, name: 'Andres', lastname: 'Almiray')], 10) },
+            stream             : { mybatisHandler.stream('transactional') { String name, SqlSession session -> session.selectCursor(PersonMapper.name + '.list') } }
+        ]
+
+        when:
+        mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            calls[method].call()
+        }
+
+        then:
+        RuntimeMybatisException e = thrown()
+        e.cause instanceof RuntimeMybatisException
+        e.cause.cause instanceof IllegalStateException
+        e.cause.cause.message.contains(method)
+        // the enclosing transaction is rolled back
+        0 == mybatisHandler.withSqlSession('transactional') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list().size()
+        }
+
+        where:
+        method << ['withBatchSqlSession', 'bulkInsert', 'stream']
+    }
+
+    void 'Execute batch statements on people table'() {
+        when:
+        List<BatchResult> results = mybatisHandler.withBatchSqlSession('batch') { String sessionFactoryName, SqlSession session ->
+            PersonMapper personMapper = session.getMapper(PersonMapper)
+            (1..7).each { id ->
+                personMapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id))
+            }
+        }
+
+        int count = mybatisHandler.withSqlSession('batch') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list().size()
+        }
+
+        then:
+        // batch_size = 3 for 'batch'
+        results.size() == 3
+        results*.updateCounts*.length == [3, 3, 1]
+        count == 7
+    }
+
+    void 'Batch statements pending before a select are flushed and reported'() {
+        when:
+        int seen = 0
+        List<BatchResult> results = mybatisHandler.withBatchSqlSession('batch') { String sessionFactoryName, SqlSession session ->
+            PersonMapper personMapper = session.getMapper(PersonMapper)
+            (1..2).each { id -> personMapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+            seen = personMapper.list().size()
+            (3..7).each { id -> personMapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+        }
+
+        then:
+        seen == 2
+        // the select starts a new batch of up to 3 statements
+        results*.updateCounts*.length == [2, 3, 2]
+    }
+
+    void 'Execute statements asynchronously on #name'() {
+        when:
+        CompletableFuture<String> future = mybatisHandler.withSqlSessionAsync(name) { String sessionFactoryName, SqlSession session ->
+            Thread.currentThread().name
+        }
+
+        then:
+        future.get(10, TimeUnit.SECONDS).startsWith('mybatis-' + name + '-async-')
+
+        where:
+        name       | _
+        'default'  | _
+        'people'   | _
+    }
+
+    @Requires({ DefaultMybatisExecutorProvider.virtualThreadsSupported })
+    void 'Execute statements asynchronously with the virtual backend'() {
+        when:
+        List<CompletableFuture<Boolean>> futures = (1..20).collect {
+            mybatisHandler.withSqlSessionAsync('virtual') { String sessionFactoryName, SqlSession session ->
+                Thread.currentThread().virtual
+            }
+        }
+
+        then:
+        futures*.get(10, TimeUnit.SECONDS).every()
+    }
+
+    @IgnoreIf({ DefaultMybatisExecutorProvider.virtualThreadsSupported })
+    void 'The virtual backend falls back to platform threads when virtual threads are not supported'() {
+        when:
+        CompletableFuture<String> future = mybatisHandler.withSqlSessionAsync('virtual') { String sessionFactoryName, SqlSession session ->
+            Thread.currentThread().name
+        }
+
+        then:
+        future.get(10, TimeUnit.SECONDS).startsWith('mybatis-virtual-async-')
+    }
+
+    void 'Gated executors never run more tasks at the same time than their permits'() {
+        given:
+        GatedExecutorService executorService = new GatedExecutorService(Executors.newCachedThreadPool(), 2, 18)
+        AtomicInteger running = new AtomicInteger()
+        AtomicInteger maximum = new AtomicInteger()
+
+        when:
+        List<Future<?>> futures = (1..20).collect {
+            executorService.submit {
+                maximum.accumulateAndGet(running.incrementAndGet()) { int a, int b -> Math.max(a, b) }
+                Thread.sleep(5)
+                running.decrementAndGet()
+            }
+        }
+        futures*.get(10, TimeUnit.SECONDS)
+        // permits and admissions are released once each task returns
+        executorService.shutdown()
+        executorService.awaitTermination(10, TimeUnit.SECONDS)
+
+        then:
+        maximum.get() == 2
+        executorService.availablePermits == 2
+        executorService.availableAdmissions == 20
+    }
+
+    void 'Gated executors reject tasks once running and waiting tasks reach their bounds'() {
+        given:
+        GatedExecutorService executorService = new GatedExecutorService(Executors.newCachedThreadPool(), 1, 1)
+        CountDownLatch release = new CountDownLatch(1)
+
+        when:
+        2.times { executorService.execute { release.await() } }
+        executorService.execute {}
+
+        then:
+        thrown(RejectedExecutionException)
+        executorService.availableAdmissions == 0
+
+        when:
+        release.countDown()
+        executorService.shutdown()
+        executorService.awaitTermination(10, TimeUnit.SECONDS)
+
+        then:
+        executorService.availableAdmissions == 2
+        executorService.availablePermits == 1
+    }
+
+    void 'Concurrent first use creates a single sqlSessionFactory'() {
+        given:
+        TestEventHandler testEventHandler = new TestEventHandler()
+        application.eventRouter.subscribe(testEventHandler)
+
+        when:
+        List<Thread> threads = (1..8).collect {
+            Thread.start {
+                mybatisHandler.withSqlSession('people') { String sessionFactoryName, SqlSession session ->
+                    true
+                }
+            }
+        }
+        threads*.join()
+
+        then:
+        testEventHandler.events.count('MybatisConnectStartEvent') == 1
+    }
+
+    void 'Connect end event reports the time spent creating the sqlSessionFactory'() {
+        given:
+        List<Long> durations = []
+        application.eventRouter.subscribe(new Object() {
+            @EventHandler
+            void handleMybatisConnectEndEvent(MybatisConnectEndEvent event) {
+                durations << event.duration
+            }
+        })
+
+        when:
+        mybatisHandler.withSqlSession { String sessionFactoryName, SqlSession session -> }
+
+        then:
+        durations.size() == 1
+        durations[0] >= 0
+    }
+
+    void 'Session factories sharing a datasource are connected in parallel'() {
+        given:
+        MybatisAddon mybatisAddon = application.addonManager.addons.values().find { it instanceof MybatisAddon }
+        List<String> dataSourceNames = [].asSynchronized()
+        application.eventRouter.subscribe(new Object() {
+            @EventHandler
+            void handleDataSourceConnectStartEvent(DataSourceConnectStartEvent event) {
+                dataSourceNames << event.name
+            }
+        })
+
+        when:
+        // 'parallel' reads from 'parallel_replica', which is a session factory of its own
+        mybatisAddon.connectInParallel(['parallel', 'parallel_replica'])
+
+        then:
+        mybatisStorage.get('parallel')
+        mybatisStorage.get('parallel_replica')
+        dataSourceNames.sort() == ['parallel', 'parallel_replica']
+    }
+
+    void 'Failures of session factories connected in parallel are reported together'() {
+        given:
+        MybatisAddon mybatisAddon = application.addonManager.addons.values().find { it instanceof MybatisAddon }
+
+        when:
+        mybatisAddon.connectInParallel(['bogus', 'missing'])
+
+        then:
+        GriffonException e = thrown(GriffonException)
+        // the first failure stops factories that have not started yet
+        e.suppressed.size() in [1, 2]
+        e.suppressed.every { it instanceof IllegalArgumentException }
+    }
+
+    void 'Session factories connected in parallel are closed when another one fails'() {
+        given:
+        MybatisAddon mybatisAddon = application.addonManager.addons.values().find { it instanceof MybatisAddon }
+
+        when:
+        mybatisAddon.connectInParallel(['people', 'bogus'])
+
+        then:
+        thrown(GriffonException)
+        !mybatisStorage.get('people')
+    }
+
+    void 'Mapper classes are resolved once'() {
+        when:
+        Set<Class<?>> mapperClasses = mybatisMapperRegistry.mapperClasses
+
+        then:
+        mapperClasses == [PersonMapper] as Set
+        mybatisMapperRegistry.mapperClasses.is(mapperClasses)
+    }
+
+    void 'Mapper indexes only replace scanning of the classpath entry that contains them'() {
+        given:
+        File root = File.createTempDir()
+        File index = new File(root, DefaultMybatisMapperRegistry.INDEX_RESOURCE)
+        index.parentFile.mkdirs()
+        index.text = Runnable.name + '\n'
+        File types = new File(root, 'META-INF/types/' + MybatisMapper.name)
+        types.parentFile.mkdirs()
+        types.text = Comparable.name + '\n'
+        ClassLoader classLoader = new URLClassLoader([root.toURI().toURL()] as URL[], getClass().classLoader)
+
+        when:
+        Set<Class<?>> mapperClasses = new DefaultMybatisMapperRegistry({ -> classLoader } as ApplicationClassLoader).mapperClasses
+
+        then:
+        // the index wins over the types file next to it; test classes ship no index, thus they are scanned
+        mapperClasses == [Runnable, PersonMapper] as Set
+
+        cleanup:
+        root.deleteDir()
+    }
+
+    void 'Session factories with share_configuration reuse parsed statements'() {
+        given:
+        String statementId = PersonMapper.name + '.findPersonById'
+
+        when:
+        MappedStatement first = mybatisHandler.withSqlSession('shared_a') { String sessionFactoryName, SqlSession session ->
+            session.configuration.getMappedStatement(statementId)
+        }
+        MappedStatement second = mybatisHandler.withSqlSession('shared_b') { String sessionFactoryName, SqlSession session ->
+            session.configuration.getMappedStatement(statementId)
+        }
+        MappedStatement unshared = mybatisHandler.withSqlSession { String sessionFactoryName, SqlSession session ->
+            session.configuration.getMappedStatement(statementId)
+        }
+
+        then:
+        !first.is(second)
+        first.sqlSource.is(second.sqlSource)
+        first.resultMaps == second.resultMaps
+        !first.sqlSource.is(unshared.sqlSource)
+    }
+
+    void 'Mappers are parsed on first use with lazy_mappers'() {
+        when:
+        List<Boolean> registered = mybatisHandler.withSqlSession('lazy') { String sessionFactoryName, SqlSession session ->
+            boolean before = session.configuration.mapperRegistry.hasMapper(PersonMapper)
+            List<Person> people = session.getMapper(PersonMapper).list()
+            [before, session.configuration.mapperRegistry.hasMapper(PersonMapper), people.isEmpty()]
+        }
+
+        then:
+        registered == [false, true, true]
+    }
+
+    void 'Query results are shared between sessions with cache_policy'() {
+        given:
+        mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+        }
+        SecondLevelCacheInterceptor interceptor = mybatisStorage.get('cache').configuration.interceptors
+            .find { it instanceof SecondLevelCacheInterceptor }
+
+        when:
+        List<Integer> sizes = (1..3).collect {
+            mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+                session.getMapper(PersonMapper).list().size()
+            }
+        }
+        mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 2, name: 'Andres', lastname: 'Almiray'))
+        }
+        int size = mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list().size()
+        }
+        BoundedCache cache = interceptor.caches.caches.find { it.id == PersonMapper.name }
+
+        then:
+        sizes == [1, 1, 1]
+        size == 2
+        cache.hitCount == 2
+        cache.missCount == 2
+    }
+
+    void 'Sessions get their own copy of cached lists'() {
+        given:
+        mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+        }
+
+        when:
+        List<List<Person>> lists = (1..3).collect {
+            mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+                session.getMapper(PersonMapper).list()
+            }
+        }
+        lists[0].clear()
+        lists[1].clear()
+        List<Person> people = mybatisHandler.withSqlSession('cache') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).list()
+        }
+
+        then:
+        people*.name == ['Danno']
+        // entities are shared by every session
+        people[0].is(lists[2][0])
+    }
+
+    void 'Writes clear the cached results of every namespace'() {
+        given:
+        Configuration configuration = new Configuration()
+        SqlSource sql = new StaticSqlSource(configuration, 'SELECT * FROM people')
+        MappedStatement read = new MappedStatement.Builder(configuration, 'people.Reader.list', sql, SqlCommandType.SELECT).useCache(true).build()
+        MappedStatement write = new MappedStatement.Builder(configuration, 'people.Writer.insert', sql, SqlCommandType.INSERT).flushCacheRequired(true).build()
+        SecondLevelCaches caches = SecondLevelCaches.of([cache_policy: 'lru'])
+        Executor executor = new SecondLevelCacheExecutor(Stub(Executor) { query(_, _, _, _, _, _) >> ['row'] }, caches)
+        CacheKey key = new CacheKey(['people'] as Object[])
+
+        when:
+        executor.query(read, null, RowBounds.DEFAULT, null, key, null)
+        executor.commit(true)
+        int cached = caches.caches*.size.sum()
+        executor.update(write, null)
+        executor.commit(true)
+
+        then:
+        cached == 1
+        // 'people.Writer' may change what 'people.Reader' reads
+        caches.caches*.size.sum() == 0
+    }
+
+    void 'Mappers handed to withMapper are reused across calls'() {
+        when:
+        PersonMapper first = mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            mapper
+        }
+        List result = mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            [mapper, mapper.list().size()]
+        }
+        first.list()
+
+        then:
+        first.is(result[0])
+        result[1] == 1
+        thrown(IllegalStateException)
+    }
+
+    void 'Streams keep their session open until consumed'() {
+        given:
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            (1..5).each { id -> mapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+        }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        int sessionCount = sqlSessionFactory.sessionCount
+
+        when:
+        Stream<Person> stream = mybatisHandler.stream('people', 2) { String sessionFactoryName, SqlSession session ->
+            session.selectCursor(PersonMapper.name + '.list')
+        }
+        int openSessions = sqlSessionFactory.sessionCount
+        List<Integer> ids = stream.map { Person person -> person.id }.collect(Collectors.toList())
+
+        then:
+        ids == [1, 2, 3, 4, 5]
+        openSessions == sessionCount + 1
+        sqlSessionFactory.sessionCount == sessionCount
+    }
+
+    void 'Closing a partially consumed stream releases its session'() {
+        given:
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            (1..5).each { id -> mapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+        }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        int sessionCount = sqlSessionFactory.sessionCount
+
+        when:
+        Stream<Person> stream = mybatisHandler.stream('people') { String sessionFactoryName, SqlSession session ->
+            session.selectCursor(PersonMapper.name + '.list')
+        }
+        Person first = stream.findFirst().get()
+        stream.close()
+
+        then:
+        first.id == 1
+        sqlSessionFactory.sessionCount == sessionCount
+    }
+
+    void 'Publishers emit no more rows than requested'() {
+        given:
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            (1..5).each { id -> mapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+        }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        int sessionCount = sqlSessionFactory.sessionCount
+        List<Integer> ids = [].asSynchronized()
+        Subscription subscription
+        Cursor<Person> cursor
+        PollingConditions conditions = new PollingConditions(timeout: 10)
+
+        when:
+        reactiveMybatisHandler.publish('people') { String sessionFactoryName, SqlSession session ->
+            cursor = session.selectCursor(PersonMapper.name + '.list')
+        }.subscribe(new Subscriber<Person>() {
+            void onSubscribe(Subscription s) { subscription = s; s.request(2) }
+
+            void onNext(Person person) { ids << person.id }
+
+            void onError(Throwable t) {}
+
+            void onComplete() {}
+        })
+        // a single row is read ahead of the requested ones to look for the end of the rows
+        conditions.eventually {
+            assert cursor?.currentIndex == 2
+        }
+        subscription.cancel()
+
+        then:
+        conditions.eventually {
+            assert sqlSessionFactory.sessionCount == sessionCount
+        }
+        ids == [1, 2]
+    }
+
+    void 'Publishers complete as soon as every row has been emitted'() {
+        given:
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            (1..5).each { id -> mapper.insert(new Person(id: id, name: 'name' + id, lastname: 'lastname' + id)) }
+        }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        int sessionCount = sqlSessionFactory.sessionCount
+        List<Integer> ids = [].asSynchronized()
+        CountDownLatch completed = new CountDownLatch(1)
+
+        when:
+        reactiveMybatisHandler.publish('people') { String sessionFactoryName, SqlSession session ->
+            session.selectCursor(PersonMapper.name + '.list')
+        }.subscribe(new Subscriber<Person>() {
+            // exactly as many rows as there are
+            void onSubscribe(Subscription s) { s.request(5) }
+
+            void onNext(Person person) { ids << person.id }
+
+            void onError(Throwable t) {}
+
+            void onComplete() { completed.countDown() }
+        })
+
+        then:
+        completed.await(10, TimeUnit.SECONDS)
+        ids == [1, 2, 3, 4, 5]
+        new PollingConditions(timeout: 10).eventually {
+            assert sqlSessionFactory.sessionCount == sessionCount
+        }
+    }
+
+    void 'Session factories with replicas read from replicas and write to the primary'() {
+        when:
+        // the session autocommits, thus the read that follows the write still goes to the replica
+        List<Integer> ids = mybatisHandler.withMapper('routing', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+            mapper.list()*.id
+        }
+        List<Integer> primaryIds = []
+        Connection connection = dataSourceStorage.get('routing').connection
+        try {
+            ResultSet resultSet = connection.createStatement().executeQuery('SELECT id FROM people')
+            while (resultSet.next()) {
+                primaryIds << resultSet.getInt(1)
+            }
+        } finally {
+            connection.close()
+        }
+
+        then:
+        // 'routing_replica' is seeded with a single row
+        ids == [100]
+        primaryIds == [1]
+    }
+
+    void 'Read-only transactional sessions read from replicas'() {
+        when:
+        List<Integer> ids = mybatisHandler.withSqlSession('routing_read_only') { String sessionFactoryName, SqlSession session ->
+            // touching the connection outside of a statement must not pin the session to the primary
+            session.connection
+            session.getMapper(PersonMapper).list()*.id
+        }
+
+        then:
+        // 'routing_replica' is seeded with a single row while the primary is empty
+        ids == [100]
+    }
+
+    void 'Callbacks are routed to the shard that owns a key'() {
+        expect:
+        shardedMybatisHandler.shardNames == ['shard_a', 'shard_b']
+        shardedMybatisHandler.resolveShard(key) == shard
+        shardedMybatisHandler.withShard(key) { String sessionFactoryName, SqlSession session -> sessionFactoryName } == shard
+
+        where:
+        key | shard
+        0   | 'shard_a'
+        1   | 'shard_b'
+        -1  | 'shard_b'
+    }
+
+    void 'Callbacks run on every shard with withEachShard'() {
+        when:
+        List<String> names = shardedMybatisHandler.withEachShard { String sessionFactoryName, SqlSession session ->
+            sessionFactoryName
+        }
+        String joined = shardedMybatisHandler.withEachShard({ String sessionFactoryName, SqlSession session ->
+            sessionFactoryName
+        } as MybatisCallback<String>, Collectors.joining(','))
+
+        then:
+        names == ['shard_a', 'shard_b']
+        joined == 'shard_a,shard_b'
+    }
+
+    void 'Shards reuse parsed statements'() {
+        given:
+        String statementId = PersonMapper.name + '.findPersonById'
+
+        when:
+        List<MappedStatement> statements = shardedMybatisHandler.withEachShard { String sessionFactoryName, SqlSession session ->
+            session.configuration.getMappedStatement(statementId)
+        }
+
+        then:
+        statements[0].sqlSource.is(statements[1].sqlSource)
+    }
+
+    void 'Statement calls are recorded per statement id'() {
+        given:
+        String statementId = PersonMapper.name + '.findPersonById'
+
+        when:
+        mybatisHandler.withSqlSession('people') { String sessionFactoryName, SqlSession session ->
+            PersonMapper personMapper = session.getMapper(PersonMapper)
+            3.times { personMapper.findPersonById(it) }
+        }
+        StatementMetrics metrics = mybatisStorage.get('people').delegate.getStatementMetrics(statementId)
+
+        then:
+        metrics.count == 3
+        metrics.errorCount == 0
+        metrics.getTimeAtPercentile(99d, TimeUnit.MICROSECONDS) >= metrics.getTimeAtPercentile(50d, TimeUnit.MICROSECONDS)
+    }
+
+    void 'Closing a session twice releases it once'() {
+        given:
+        mybatisHandler.withSqlSession('people') { String sessionFactoryName, SqlSession session -> }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        int sessionCount = sqlSessionFactory.sessionCount
+
+        when:
+        SqlSession session = sqlSessionFactory.openSession()
+        session.close()
+        session.close()
+
+        then:
+        sqlSessionFactory.sessionCount == sessionCount
+    }
+
+    void 'Sessions are tracked by their transactions without being wrapped'() {
+        given:
+        mybatisHandler.withSqlSession('people') { String sessionFactoryName, SqlSession session -> }
+        RecordingSqlSessionFactory people = mybatisStorage.get('people').delegate
+        Environment environment = new Environment('tracked', new TrackingTransactionFactory(), people.configuration.environment.dataSource)
+        RecordingSqlSessionFactory sqlSessionFactory = new RecordingSqlSessionFactory(new SqlSessionFactoryBuilder().build(new Configuration(environment)))
+
+        when:
+        SqlSession session = sqlSessionFactory.openSession()
+        int sessionCount = sqlSessionFactory.sessionCount
+        session.close()
+        session.close()
+
+        then:
+        !sqlSessionFactory.wrapSessions
+        !(session instanceof LinkedSqlSession)
+        sessionCount == 1
+        sqlSessionFactory.sessionCount == 0
+    }
+
+    void 'Sessions held longer than the leak threshold are reported'() {
+        given:
+        mybatisHandler.withSqlSession('people') { String sessionFactoryName, SqlSession session -> }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('people').delegate
+        sqlSessionFactory.setLeakThreshold(10, TimeUnit.MILLISECONDS)
+        List<MybatisSessionLeakEvent> leaks = []
+        application.eventRouter.subscribe(new Object() {
+            @EventHandler
+            void handleMybatisSessionLeakEvent(MybatisSessionLeakEvent event) {
+                leaks << event
+            }
+        })
+
+        when:
+        SqlSession session = sqlSessionFactory.openSession()
+        Thread.sleep(50)
+        sqlSessionFactory.openSession().close()
+        List<String> report = sqlSessionFactory.leakReport
+        session.close()
+
+        then:
+        report.size() == 1
+        leaks.size() == 1
+        leaks[0].name == 'people'
+        leaks[0].age >= 10
+        !leaks[0].closed
+    }
+
+    void 'Connections borrowed by a session factory are tracked'() {
+        given:
+        mybatisHandler.withSqlSession('metrics') { String sessionFactoryName, SqlSession session -> }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('metrics').delegate
+        InstrumentedDataSource dataSource = (InstrumentedDataSource) sqlSessionFactory.configuration.environment.dataSource
+        List<MybatisPoolExhaustedEvent> exhaustions = []
+        application.eventRouter.subscribe(new Object() {
+            @EventHandler
+            void handleMybatisPoolExhaustedEvent(MybatisPoolExhaustedEvent event) {
+                exhaustions << event
+            }
+        })
+
+        when:
+        int active = mybatisHandler.withSqlSession('metrics') { String sessionFactoryName, SqlSession session ->
+            session.connection
+            dataSource.activeConnections
+        }
+        List<SqlSession> sessions = (1..dataSource.maximumPoolSize).collect { sqlSessionFactory.openSession() }
+        sessions*.getConnection()
+        sessions*.close()
+
+        then:
+        active == 1
+        dataSource.activeConnections == 0
+        dataSource.peakActiveConnections == dataSource.maximumPoolSize
+        dataSource.acquisitionTimeoutCount == 0
+        exhaustions.size() == 1
+        exhaustions[0].name == 'metrics'
+        exhaustions[0].activeConnections == dataSource.maximumPoolSize
+        !exhaustions[0].timedOut
+    }
+
+    void 'Prepared statements are reused across sessions'() {
+        given:
+        mybatisHandler.withSqlSession('statements') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+        }
+        StatementCachingDataSource dataSource = (StatementCachingDataSource) mybatisStorage.get('statements').configuration.environment.dataSource
+        dataSource.resetStatistics()
+
+        when:
+        List<Person> people = (1..3).collect {
+            mybatisHandler.withSqlSession('statements') { String sessionFactoryName, SqlSession session ->
+                session.getMapper(PersonMapper).findPersonById(1)
+            }
+        }
+        long prepared = dataSource.prepareCount
+        long reused = dataSource.reuseCount
+        mybatisHandler.withSqlSession('statements', ExecutorType.REUSE) { String sessionFactoryName, SqlSession session ->
+            (1..3).each { session.getMapper(PersonMapper).findPersonById(1) }
+        }
+
+        then:
+        people*.name == ['Danno'] * 3
+        prepared == 1
+        reused == 2
+        // the REUSE executor prepares a statement once per session
+        dataSource.prepareCount + dataSource.reuseCount == 4
+        dataSource.size > 0
+    }
+
+    void 'Rows are bulk inserted from a lazily consumed source'() {
+        given:
+        int generated = 0
+        Iterable<Person> rows = {
+            [
+                hasNext: { generated < 2500 },
+                next   : { generated++; new Person(id: generated, name: 'name' + generated, lastname: 'lastname' + generated) }
+            ] as Iterator<Person>
+        } as Iterable<Person>
+
+        when:
+        int before = mybatisHandler.withMapper('cache', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.list().size()
+        }
+        BulkInsertResult result = mybatisHandler.bulkInsert('cache', PersonMapper.name + '.insert', rows, 1000)
+        int after = mybatisHandler.withMapper('cache', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.list().size()
+        }
+
+        then:
+        before == 0
+        generated == 2500
+        result.rowCount == 2500
+        result.statementCount == 3
+        result.multiRow
+        result.rowsPerSecond > 0
+        // results cached before the insert are discarded
+        after == 2500
+    }
+
+    void 'Bulk inserts leave no rows behind when a later chunk fails'() {
+        given:
+        List<Person> rows = (1..2500).collect { new Person(id: it, name: 'name' + it, lastname: 'lastname' + it) }
+        // the last chunk repeats the first id
+        rows << new Person(id: 1, name: 'Danno', lastname: 'Ferrin')
+
+        when:
+        mybatisHandler.bulkInsert('people', PersonMapper.name + '.insert', rows, 1000)
+
+        then:
+        thrown(RuntimeMybatisException)
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.list().size()
+        } == 0
+    }
+
+    void 'Bulk inserts committed chunk by chunk keep the chunks written before a failure'() {
+        given:
+        List<Person> rows = (1..2500).collect { new Person(id: it, name: 'name' + it, lastname: 'lastname' + it) }
+        // the last chunk repeats the first id
+        rows << new Person(id: 1, name: 'Danno', lastname: 'Ferrin')
+
+        when:
+        mybatisHandler.bulkInsert('bulk_chunks', PersonMapper.name + '.insert', rows, 1000)
+
+        then:
+        thrown(RuntimeMybatisException)
+        mybatisHandler.withMapper('bulk_chunks', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.list().size()
+        } == 2000
+    }
+
+    void 'Query results are memoized for the lifetime of an MVC group'() {
+        given:
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.insert(new Person(id: 1, name: 'Danno', lastname: 'Ferrin'))
+        }
+        MVCGroup group = Stub(MVCGroup) { getMvcId() >> 'contacts' }
+        Supplier<List<Person>> list = {
+            mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper -> mapper.list() }
+        }
+        application.eventRouter.publishEvent(InitializeMVCGroupEvent.of(Stub(MVCGroupConfiguration), group))
+
+        when:
+        List<Person> first = mybatisHandler.withMemo(group, list)
+        first.clear()
+        List<Person> second = mybatisHandler.withMemo(group, list)
+        List<Person> unscoped = list.get()
+        int memoized = mybatisMemoRegistry.size('contacts')
+        mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper ->
+            mapper.insert(new Person(id: 2, name: 'Andres', lastname: 'Almiray'))
+        }
+        int invalidated = mybatisMemoRegistry.size('contacts')
+        List<Person> third = mybatisHandler.withMemo(group, list)
+        application.eventRouter.publishEvent(DestroyMVCGroupEvent.of(group))
+        List<Person> fourth = mybatisHandler.withMemo(group, list)
+
+        then:
+        // callers get their own copy of memoized lists
+        second*.name == ['Danno']
+        !unscoped.is(second)
+        memoized == 1
+        // writes to the namespace discard memoized results
+        invalidated == 0
+        third*.name == ['Danno', 'Andres']
+        // destroyed groups do not get their memo back
+        fourth*.name == ['Danno', 'Andres']
+        !mybatisMemoRegistry.scopes.contains('contacts')
+    }
+
+    void 'Request scoped memos are discarded when the callback returns'() {
+        when:
+        int memoized = mybatisHandler.withMemo {
+            2.times {
+                mybatisHandler.withMapper('people', PersonMapper) { String sessionFactoryName, PersonMapper mapper -> mapper.list() }
+            }
+            mybatisMemoRegistry.scopes.sum { String scope -> mybatisMemoRegistry.size(scope) }
+        }
+
+        then:
+        memoized == 1
+        mybatisMemoRegistry.scopes.isEmpty()
+    }
+
+    void 'Statements slower than the threshold are logged'() {
+        given:
+        mybatisHandler.withSqlSession('slow') { String sessionFactoryName, SqlSession session -> }
+        RecordingSqlSessionFactory sqlSessionFactory = mybatisStorage.get('slow').delegate
+        SlowQueryLog slowQueryLog = sqlSessionFactory.configuration.interceptors.find { it instanceof SlowQueryInterceptor }.slowQueryLog
+
+        when:
+        mybatisHandler.withSqlSession('slow') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 41, name: 'Fast', lastname: 'Insert'))
+        }
+        int slowQueryCount = slowQueryLog.slowQueryCount
+        slowQueryLog.setThreshold(0, TimeUnit.MILLISECONDS)
+        mybatisHandler.withSqlSession('slow') { String sessionFactoryName, SqlSession session ->
+            session.getMapper(PersonMapper).insert(new Person(id: 42, name: 'Slow', lastname: 'Insert'))
+        }
+        List<SlowQuery> slowQueries = slowQueryLog.slowQueries
+
+        then:
+        slowQueryCount == 0
+        slowQueries.size() == 1
+        slowQueries[0].statementId.endsWith('insert')
+        slowQueries[0].sql.contains('people')
+        slowQueries[0].parameters.contains('id=42')
+        !slowQueries[0].failed
+    }
+
     void 'A runtime SQLException is thrown within sqlSession handling'() {
         when:
         mybatisHandler.withSqlSession { String sessionFactoryName, SqlSession session ->
@@ -62,4 +62,134 @@ dataSources {
         dbCreate = 'create'
         url = 'jdbc:h2:mem:${application_name}-people'
     }
+    lazy {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-lazy'
+    }
+    cache {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-cache'
+    }
+    batch {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-batch'
+    }
+    transactional {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-transactional'
+    }
+    virtual {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-virtual'
+    }
+    parallel {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-parallel'
+    }
+    parallel_replica {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-parallel_replica'
+    }
+    shared_a {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-shared_a'
+    }
+    shared_b {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-shared_b'
+    }
+    routing {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-routing'
+    }
+    routing_replica {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-routing_replica'
+    }
+    shard_a {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-shard_a'
+    }
+    shard_b {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-shard_b'
+    }
+    metrics {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        schema = false
+        url = 'jdbc:h2:mem:${application_name}-metrics'
+    }
+    slow {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-slow'
+    }
+    statements {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-statements'
+        pool {
+            // every session borrows the same connection
+            maximumPoolSize = 1
+        }
+    }
+    routing_read_only {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-routing_read_only'
+    }
+    bulk_chunks {
+        driverClassName = 'org.h2.Driver'
+        username = 'sa'
+        password = ''
+        dbCreate = 'create'
+        url = 'jdbc:h2:mem:${application_name}-bulk_chunks'
+    }
 }
\ No newline at end of file
@@ -45,4 +45,73 @@ sessionFactories {
     people {
         lazyLoadingEnabled = false
     }
-}
\ No newline at end of file
+    lazy {
+        lazyLoadingEnabled = false
+        lazy_mappers = true
+    }
+    cache {
+        lazyLoadingEnabled = false
+        cache_policy = 'tinylfu'
+    }
+    batch {
+        lazyLoadingEnabled = false
+        batch_size = 3
+    }
+    transactional {
+        lazyLoadingEnabled = false
+        transactional = true
+    }
+    virtual {
+        lazyLoadingEnabled = false
+        async_backend = 'virtual'
+    }
+    parallel {
+        lazyLoadingEnabled = false
+        replicas = ['parallel_replica']
+    }
+    parallel_replica {
+        lazyLoadingEnabled = false
+    }
+    shared_a {
+        lazyLoadingEnabled = false
+        share_configuration = true
+    }
+    shared_b {
+        lazyLoadingEnabled = false
+        share_configuration = true
+    }
+    routing {
+        lazyLoadingEnabled = false
+        replicas = ['routing_replica']
+    }
+    shard_a {
+        lazyLoadingEnabled = false
+    }
+    shard_b {
+        lazyLoadingEnabled = false
+    }
+    metrics {
+        lazyLoadingEnabled = false
+        pool_metrics = true
+    }
+    slow {
+        lazyLoadingEnabled = false
+        slow_query_threshold = 1000
+    }
+    statements {
+        lazyLoadingEnabled = false
+        statement_cache_size = 32
+    }
+    routing_read_only {
+        lazyLoadingEnabled = false
+        replicas = ['routing_replica']
+        transactional = true
+        read_only = true
+    }
+    bulk_chunks {
+        lazyLoadingEnabled = false
+        bulk_commit = 'chunk'
+    }
+}
+
+shards = ['shard_a', 'shard_b']
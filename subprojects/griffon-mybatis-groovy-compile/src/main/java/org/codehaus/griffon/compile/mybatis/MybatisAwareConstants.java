@@ -28,6 +28,7 @@ import static org.codehaus.griffon.compile.core.MethodDescriptor.method;
 import static org.codehaus.griffon.compile.core.MethodDescriptor.throwing;
 import static org.codehaus.griffon.compile.core.MethodDescriptor.type;
 import static org.codehaus.griffon.compile.core.MethodDescriptor.typeParams;
+import static org.codehaus.griffon.compile.core.MethodDescriptor.typeWithParams;
 import static org.codehaus.griffon.compile.core.MethodDescriptor.types;
 
 /**
@@ -37,14 +38,32 @@ public interface MybatisAwareConstants extends BaseConstants {
     String SQL_SESSION_TYPE = "org.apache.ibatis.session.SqlSession";
     String MYBATIS_HANDLER_TYPE = "griffon.plugins.mybatis.MybatisHandler";
     String MYBATIS_CALLBACK_TYPE = "griffon.plugins.mybatis.MybatisCallback";
+    String MYBATIS_MAPPER_CALLBACK_TYPE = "griffon.plugins.mybatis.MybatisMapperCallback";
+    String COMPLETABLE_FUTURE_TYPE = "java.util.concurrent.CompletableFuture";
+    String STREAM_TYPE = "java.util.stream.Stream";
+    String CURSOR_TYPE = "org.apache.ibatis.cursor.Cursor";
+    String BATCH_RESULT_TYPE = "org.apache.ibatis.executor.BatchResult";
+    String EXECUTOR_TYPE_TYPE = "org.apache.ibatis.session.ExecutorType";
+    String PROPAGATION_TYPE = "griffon.plugins.mybatis.Propagation";
+    String BULK_INSERT_RESULT_TYPE = "griffon.plugins.mybatis.BulkInsertResult";
+    String ITERABLE_TYPE = "java.lang.Iterable";
+    String SUPPLIER_TYPE = "java.util.function.Supplier";
+    String MVC_GROUP_TYPE = "griffon.core.mvc.MVCGroup";
     String RUNTIME_MYBATIS_EXCEPTION_TYPE = "griffon.plugins.mybatis.exceptions.RuntimeMybatisException";
     String MYBATIS_HANDLER_PROPERTY = "mybatisHandler";
     String MYBATIS_HANDLER_FIELD_NAME = "this$" + MYBATIS_HANDLER_PROPERTY;
 
     String METHOD_WITH_SQL_SESSION = "withSqlSession";
+    String METHOD_WITH_MAPPER = "withMapper";
+    String METHOD_WITH_BATCH_SQL_SESSION = "withBatchSqlSession";
+    String METHOD_BULK_INSERT = "bulkInsert";
+    String METHOD_WITH_MEMO = "withMemo";
+    String METHOD_WITH_SQL_SESSION_ASYNC = "withSqlSessionAsync";
+    String METHOD_STREAM = "stream";
     String METHOD_CLOSE_SQL_SESSION = "closeSqlSession";
     String SESSION_FACTORY_NAME = "sessionFactoryName";
     String CALLBACK = "callback";
+    String M = "M";
 
     MethodDescriptor[] METHODS = new MethodDescriptor[]{
         method(
@@ -74,6 +93,177 @@ public interface MybatisAwareConstants extends BaseConstants {
                 annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
                 annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
             throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), PROPAGATION_TYPE),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), PROPAGATION_TYPE),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            types(type(ANNOTATION_NONNULL)),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), EXECUTOR_TYPE_TYPE),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            types(type(ANNOTATION_NONNULL)),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), EXECUTOR_TYPE_TYPE),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(M, R),
+            METHOD_WITH_MAPPER,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_CLASS, M),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_MAPPER_CALLBACK_TYPE, M, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(M, R),
+            METHOD_WITH_MAPPER,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_CLASS, M),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_MAPPER_CALLBACK_TYPE, M, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(JAVA_UTIL_LIST, BATCH_RESULT_TYPE),
+            typeParams(R),
+            METHOD_WITH_BATCH_SQL_SESSION,
+            args(annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(JAVA_UTIL_LIST, BATCH_RESULT_TYPE),
+            typeParams(R),
+            METHOD_WITH_BATCH_SQL_SESSION,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(BULK_INSERT_RESULT_TYPE),
+            typeParams(T),
+            METHOD_BULK_INSERT,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), ITERABLE_TYPE, T),
+                type(INT)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(BULK_INSERT_RESULT_TYPE),
+            typeParams(T),
+            METHOD_BULK_INSERT,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), ITERABLE_TYPE, T),
+                type(INT)),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_MEMO,
+            args(annotatedType(annotations(ANNOTATION_NONNULL), SUPPLIER_TYPE, R))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(R),
+            typeParams(R),
+            METHOD_WITH_MEMO,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), MVC_GROUP_TYPE),
+                annotatedType(annotations(ANNOTATION_NONNULL), SUPPLIER_TYPE, R))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(COMPLETABLE_FUTURE_TYPE, R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION_ASYNC,
+            args(annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(COMPLETABLE_FUTURE_TYPE, R),
+            typeParams(R),
+            METHOD_WITH_SQL_SESSION_ASYNC,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                annotatedType(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, R))
+        ),
+
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(STREAM_TYPE, T),
+            typeParams(T),
+            METHOD_STREAM,
+            args(typeWithParams(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, type(CURSOR_TYPE, T))),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(STREAM_TYPE, T),
+            typeParams(T),
+            METHOD_STREAM,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                typeWithParams(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, type(CURSOR_TYPE, T))),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
+        ),
+        annotatedMethod(
+            annotations(ANNOTATION_NONNULL),
+            type(STREAM_TYPE, T),
+            typeParams(T),
+            METHOD_STREAM,
+            args(
+                annotatedType(annotations(ANNOTATION_NONNULL), JAVA_LANG_STRING),
+                type(INT),
+                typeWithParams(annotations(ANNOTATION_NONNULL), MYBATIS_CALLBACK_TYPE, type(CURSOR_TYPE, T))),
+            throwing(type(RUNTIME_MYBATIS_EXCEPTION_TYPE))
         )
     };
 }
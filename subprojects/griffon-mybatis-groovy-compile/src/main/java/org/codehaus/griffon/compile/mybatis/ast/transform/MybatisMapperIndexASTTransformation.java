@@ -0,0 +1,123 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.compile.mybatis.ast.transform;
+
+import griffon.plugins.mybatis.MybatisMapper;
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisMapperRegistry;
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotationNode;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.CompileUnit;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.expr.ClassExpression;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.ast.expr.ListExpression;
+import org.codehaus.groovy.control.CompilePhase;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.groovy.transform.ASTTransformation;
+import org.codehaus.groovy.transform.GroovyASTTransformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Writes the index read by {@code DefaultMybatisMapperRegistry} next to the compiled classes, listing every class
+ * annotated with {@code @TypeProviderFor(MybatisMapper)}. Nothing is written when classes are not compiled to disk.
+ *
+ * @author Andres Almiray
+ * @since 3.0.0
+ */
+@GroovyASTTransformation(phase = CompilePhase.CANONICALIZATION)
+public class MybatisMapperIndexASTTransformation implements ASTTransformation {
+    private static final Logger LOG = LoggerFactory.getLogger(MybatisMapperIndexASTTransformation.class);
+    private static final String TYPE_PROVIDER_FOR_TYPE = "org.kordamp.jipsy.annotations.TypeProviderFor";
+    private static final ClassNode MYBATIS_MAPPER_CNODE = ClassHelper.make(MybatisMapper.class);
+
+    // source units of the same compilation share a compile unit; each of them rewrites the whole index
+    private static final Map<CompileUnit, Set<String>> MAPPER_CLASS_NAMES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    @Override
+    public void visit(ASTNode[] nodes, SourceUnit source) {
+        File targetDirectory = source.getConfiguration().getTargetDirectory();
+        ModuleNode module = (ModuleNode) nodes[0];
+        if (targetDirectory == null || module.getUnit() == null) {
+            return;
+        }
+
+        Set<String> names = new TreeSet<>();
+        for (ClassNode classNode : module.getClasses()) {
+            if (isMybatisMapperProvider(classNode)) {
+                names.add(classNode.getName());
+            }
+        }
+        if (names.isEmpty()) {
+            return;
+        }
+
+        synchronized (MAPPER_CLASS_NAMES) {
+            Set<String> mapperClassNames = MAPPER_CLASS_NAMES.computeIfAbsent(module.getUnit(), k -> new TreeSet<>());
+            if (mapperClassNames.addAll(names)) {
+                writeIndex(targetDirectory, mapperClassNames);
+            }
+        }
+    }
+
+    private static boolean isMybatisMapperProvider(ClassNode classNode) {
+        for (AnnotationNode annotation : classNode.getAnnotations()) {
+            if (TYPE_PROVIDER_FOR_TYPE.equals(annotation.getClassNode().getName())) {
+                Expression value = annotation.getMember("value");
+                if (value instanceof ClassExpression) {
+                    return MYBATIS_MAPPER_CNODE.equals(value.getType());
+                } else if (value instanceof ListExpression) {
+                    for (Expression expression : ((ListExpression) value).getExpressions()) {
+                        if (expression instanceof ClassExpression && MYBATIS_MAPPER_CNODE.equals(expression.getType())) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void writeIndex(File targetDirectory, Set<String> mapperClassNames) {
+        File index = new File(targetDirectory, DefaultMybatisMapperRegistry.INDEX_RESOURCE);
+        LOG.debug("Writing {} mybatis mapper(s) to {}", mapperClassNames.size(), index);
+        try {
+            Files.createDirectories(index.getParentFile().toPath());
+            try (Writer writer = Files.newBufferedWriter(index.toPath(), UTF_8)) {
+                DefaultMybatisMapperRegistry.writeIndex(mapperClassNames, writer);
+            }
+        } catch (IOException e) {
+            // mappers are still found by scanning, only slower
+            LOG.warn("Could not write " + index, e);
+        }
+    }
+}
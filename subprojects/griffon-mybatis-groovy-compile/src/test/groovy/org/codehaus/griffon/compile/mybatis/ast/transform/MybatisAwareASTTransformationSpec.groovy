@@ -55,11 +55,21 @@ class MybatisAwareASTTransformationSpec extends Specification {
 
         when:
         def bean = shell.evaluate('''
+        import griffon.plugins.mybatis.BulkInsertResult
         import griffon.plugins.mybatis.MybatisCallback
         import griffon.plugins.mybatis.exceptions.RuntimeMybatisException
         import griffon.plugins.mybatis.MybatisHandler
+        import griffon.plugins.mybatis.MybatisMapperCallback
+        import griffon.plugins.mybatis.Propagation
 
         import griffon.annotations.core.Nonnull
+        import griffon.core.mvc.MVCGroup
+        import org.apache.ibatis.cursor.Cursor
+        import org.apache.ibatis.executor.BatchResult
+        import org.apache.ibatis.session.ExecutorType
+        import java.util.concurrent.CompletableFuture
+        import java.util.function.Supplier
+        import java.util.stream.Stream
 import griffon.transform.mybatis.MybatisAware
         @griffon.transform.mybatis.MybatisAware
         class MybatisHandlerBean implements MybatisHandler {
@@ -71,6 +81,74 @@ import griffon.transform.mybatis.MybatisAware
              <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
                 return null
             }
+            @Override
+             <R> R withSqlSession(@Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull Propagation propagation, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <R> R withSqlSession(@Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <R> R withSqlSession(@Nonnull String sessionFactoryName, @Nonnull ExecutorType executorType, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <M, R> R withMapper(@Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <M, R> R withMapper(@Nonnull String sessionFactoryName, @Nonnull Class<M> mapperType, @Nonnull MybatisMapperCallback<M, R> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <R> List<BatchResult> withBatchSqlSession(@Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return []
+            }
+            @Override
+             <R> List<BatchResult> withBatchSqlSession(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) throws RuntimeMybatisException {
+                return []
+            }
+            @Override
+             <T> BulkInsertResult bulkInsert(@Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <T> BulkInsertResult bulkInsert(@Nonnull String sessionFactoryName, @Nonnull String statementId, @Nonnull Iterable<T> rows, int chunkSize) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <R> R withMemo(@Nonnull Supplier<R> callback) {
+                return null
+            }
+            @Override
+             <R> R withMemo(@Nonnull MVCGroup group, @Nonnull Supplier<R> callback) {
+                return null
+            }
+            @Override
+             <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull MybatisCallback<R> callback) {
+                return null
+            }
+            @Override
+             <R> CompletableFuture<R> withSqlSessionAsync(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<R> callback) {
+                return null
+            }
+            @Override
+             <T> Stream<T> stream(@Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <T> Stream<T> stream(@Nonnull String sessionFactoryName, @Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+                return null
+            }
+            @Override
+             <T> Stream<T> stream(@Nonnull String sessionFactoryName, int fetchSize, @Nonnull MybatisCallback<Cursor<T>> callback) throws RuntimeMybatisException {
+                return null
+            }
             @Override
             void closeSqlSession(){}
             @Override
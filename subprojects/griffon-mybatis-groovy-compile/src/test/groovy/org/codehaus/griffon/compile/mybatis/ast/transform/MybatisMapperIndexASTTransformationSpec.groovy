@@ -0,0 +1,56 @@
+/*
+ * SPDX-License-Identifier: Apache-2.0
+ *
+ * Copyright 2014-2021 The author and/or original authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.griffon.compile.mybatis.ast.transform
+
+import org.codehaus.griffon.runtime.mybatis.DefaultMybatisMapperRegistry
+import org.codehaus.groovy.control.CompilationUnit
+import org.codehaus.groovy.control.CompilerConfiguration
+import spock.lang.Specification
+
+/**
+ * @author Andres Almiray
+ */
+class MybatisMapperIndexASTTransformationSpec extends Specification {
+    def 'MybatisMapperIndexASTTransformation indexes every mapper of a compilation'() {
+        given:
+        File targetDirectory = File.createTempDir()
+        CompilationUnit unit = new CompilationUnit(new CompilerConfiguration(targetDirectory: targetDirectory))
+        unit.addSource('PersonMapper.groovy', '''
+        import griffon.plugins.mybatis.MybatisMapper
+        import org.kordamp.jipsy.annotations.TypeProviderFor
+        @TypeProviderFor(MybatisMapper)
+        interface PersonMapper extends MybatisMapper { }
+        interface PlainMapper extends MybatisMapper { }
+        ''')
+        unit.addSource('AddressMapper.groovy', '''
+        import griffon.plugins.mybatis.MybatisMapper
+        import org.kordamp.jipsy.annotations.TypeProviderFor
+        @TypeProviderFor([MybatisMapper])
+        interface AddressMapper extends MybatisMapper { }
+        ''')
+
+        when:
+        unit.compile()
+
+        then:
+        new File(targetDirectory, DefaultMybatisMapperRegistry.INDEX_RESOURCE).readLines() == ['AddressMapper', 'PersonMapper']
+
+        cleanup:
+        targetDirectory.deleteDir()
+    }
+}